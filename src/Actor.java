@@ -15,6 +15,8 @@ public abstract class Actor
     private Location location;
     // Simulator object reference.
     private Simulator sim;
+    // The species id the field stores for this actor.
+    private final byte speciesId;
 
     /**
      * Abstract constructor for Actor inherited type.
@@ -26,6 +28,7 @@ public abstract class Actor
         this.field = field;
         this.location = location;
         this.sim = sim;
+        speciesId = Species.idOf(getClass());
         field.place(this,location);
     }
 
@@ -34,6 +37,27 @@ public abstract class Actor
      * @param newActors - The list of newBorn young after one step.
      */
     abstract public void act(List<Actor> newActors);
+
+    /**
+     * Work out what the actor will do this step, for the two phase step
+     * (see IntentStepEngine). All the actors plan at the same time, so this
+     * must only look at the field and the other actors, never change them.
+     * By default nothing is planned and commit() simply acts.
+     * @param intent - where to put the plan, cleared beforehand.
+     */
+    protected void plan(Intent intent) {
+    }
+
+    /**
+     * Carry out the plan made by plan(). The actors commit one at a time,
+     * so the field may have changed since the plan was made - cells may
+     * have been taken and food may have been eaten.
+     * @param intent - the plan.
+     * @param newActors - The list of newBorn young after one step.
+     */
+    protected void commit(Intent intent, List<Actor> newActors) {
+        act(newActors);
+    }
     
     /**
      * Returns the location of the actor in the field.
@@ -85,6 +109,14 @@ public abstract class Actor
         return field;
     }
     
+    /**
+     * Returns the species id of this actor, as stored in the field.
+     * @return byte - one of the Species constants.
+     */
+    protected byte getSpeciesId() {
+        return speciesId;
+    }
+    
     /**
      * Returns the simulator object reference.
      * @param sim - the simulator of the current actor.
@@ -92,4 +124,26 @@ public abstract class Actor
     protected Simulator getSim() {
         return sim;
     }
+
+    /**
+     * Returns a whole number parameter of this actor's species, as set
+     * for the simulator it is in.
+     * @param parameter - one of the Parameters constants.
+     * @param defaultValue - the species' own constant.
+     * @return int - the value set, or the default if none was.
+     */
+    protected int parameter(int parameter, int defaultValue) {
+        return sim.getParameters().get(speciesId, parameter, defaultValue);
+    }
+
+    /**
+     * Returns a parameter of this actor's species, as set for the
+     * simulator it is in.
+     * @param parameter - one of the Parameters constants.
+     * @param defaultValue - the species' own constant.
+     * @return double - the value set, or the default if none was.
+     */
+    protected double parameter(int parameter, double defaultValue) {
+        return sim.getParameters().get(speciesId, parameter, defaultValue);
+    }
 }
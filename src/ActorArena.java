@@ -0,0 +1,194 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the actors of a simulation, in the order they act.
+ *
+ * The actors sit in an array of slots, with a bitmap of the slots whose
+ * actor is still linked. During a step the slots stay where they are: an
+ * actor found dead is unlinked by clearing its bit, which costs nothing
+ * however many actors come after it, and newborns go into the slots after
+ * the last one (see newborns()), past the actors of the step. At the end
+ * of the step compact() drops every dead or unlinked actor in one pass,
+ * keeping the others in order, so the next step starts from the living
+ * actors followed by the newborns - the same order a list would have
+ * after removing the dead and adding the newborns at its end.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class ActorArena
+{
+    // The actors, by slot.
+    private Actor[] slots;
+    // One bit per slot: is its actor linked.
+    private long[] linked;
+    // How many slots are in use, linked or not.
+    private int size;
+    // The first slot added since the last compact() or clear().
+    private int firstNewborn;
+    // Adds the newborns of a step to the arena.
+    private final List<Actor> newborns;
+
+    /**
+     * Create an empty arena.
+     */
+    public ActorArena()
+    {
+        slots = new Actor[64];
+        linked = new long[1];
+        size = 0;
+        newborns = new Newborns();
+    }
+
+    /**
+     * Check whether an actor is still part of the simulation.
+     * @param actor The actor.
+     * @return false for dead animals and plants.
+     */
+    public static boolean isAlive(Actor actor)
+    {
+        if(actor instanceof Animal) {
+            return ((Animal) actor).isAlive();
+        }
+        else if(actor instanceof Plant) {
+            return ((Plant) actor).isAlive();
+        }
+        return true;
+    }
+
+    /**
+     * Put an actor in the slot after the last one.
+     * @param actor The actor.
+     */
+    public void add(Actor actor)
+    {
+        if(size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+            linked = Arrays.copyOf(linked, slots.length >>> 6);
+        }
+        slots[size] = actor;
+        linked[size >>> 6] |= 1L << size;
+        size++;
+    }
+
+    /**
+     * Return a list of the actors added to the arena since the last
+     * compact() or clear() - during a step, the newborns of the step. What
+     * is added to the list is put in the arena after the last slot, so it
+     * is what the actors are given for their newborns (see Actor.act()).
+     * It can only be added to at its end.
+     * @return The list.
+     */
+    public List<Actor> newborns()
+    {
+        return newborns;
+    }
+
+    /**
+     * @return How many slots are in use, including those unlinked since the last compact().
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return the actor in a slot, linked or not.
+     * @param slot The slot.
+     * @return The actor.
+     */
+    public Actor get(int slot)
+    {
+        return slots[slot];
+    }
+
+    /**
+     * Check whether the actor in a slot is linked.
+     * @param slot The slot.
+     * @return true if it has not been unlinked.
+     */
+    public boolean isLinked(int slot)
+    {
+        return (linked[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Unlink the actor in a slot: it stays in its slot until compact(),
+     * but takes no further part in the simulation.
+     * @param slot The slot.
+     */
+    public void unlink(int slot)
+    {
+        linked[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /**
+     * Drop the actors that are unlinked or dead, and move the others
+     * down to fill their slots, keeping them in order. The dead animals
+     * give their entity ids back to their AnimalStore.
+     */
+    public void compact()
+    {
+        int kept = 0;
+        for(int slot = 0; slot < size; slot++) {
+            Actor actor = slots[slot];
+            if(isLinked(slot) && isAlive(actor)) {
+                slots[kept++] = actor;
+            }
+            else if(actor instanceof Animal) {
+                // Its entity id can go to a newborn.
+                ((Animal) actor).release();
+            }
+        }
+        Arrays.fill(slots, kept, size, null);
+        Arrays.fill(linked, 0);
+        Arrays.fill(linked, 0, kept >>> 6, -1L);
+        if((kept & 63) != 0) {
+            linked[kept >>> 6] = (1L << kept) - 1;
+        }
+        size = kept;
+        firstNewborn = kept;
+    }
+
+    /**
+     * Remove every actor.
+     */
+    public void clear()
+    {
+        Arrays.fill(slots, 0, size, null);
+        Arrays.fill(linked, 0);
+        size = 0;
+        firstNewborn = 0;
+    }
+
+    /**
+     * The actors added since the last compact() or clear(), in the slots
+     * after firstNewborn; adding to it adds to the arena.
+     */
+    private class Newborns extends AbstractList<Actor>
+    {
+        public void add(int index, Actor actor)
+        {
+            if(index != size()) {
+                throw new UnsupportedOperationException("The newborns can only be added to at the end.");
+            }
+            ActorArena.this.add(actor);
+            modCount++;
+        }
+
+        public Actor get(int index)
+        {
+            if(index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Newborn " + index + " of " + size());
+            }
+            return slots[firstNewborn + index];
+        }
+
+        public int size()
+        {
+            return size - firstNewborn;
+        }
+    }
+}
@@ -1,6 +1,4 @@
-import java.util.List;
 import java.awt.Color;
-import java.util.Random;
 /**
  * Algae is a specific class implementing the plant behaviour.
  * It can spring up from soil and it grows up to a certain limit.
@@ -18,8 +16,6 @@ public class Algae extends Plant
     private static final double SPAWN_ALGAE_CHANCE = 0.0015;
     // It can go up until this threshhold
     private static final int MIN_HABITAT_HEIGHT = 20;
-
-    private static final Random rand = Randomizer.getRandom();
     
     /**
      * Constructor for Algae objects
@@ -37,42 +33,36 @@ public class Algae extends Plant
      * Plants can grow and thus they 'produce' another plants.
      * In particular Algae can grow only upwards.
      * 
-     * @param newPlants List<Plant> the new plants that grow from this one.
+     * @param cells int[] - where to put the cell the new plant grows in.
+     * @return int - how many cells were chosen (0 or 1).
      */
-    protected void grow(List<Plant> newPlants) {
-        if (isConnectedToGround(super.getLocation())) {// If it has any connection to ground (Soil).
-            List<Location> freeLocations = super.getField().getFreeAdjacentLocations(super.getLocation());
-            for(Location l : freeLocations) {
-                if (l.getRow() + 1 == super.getLocation().getRow() && rand.nextDouble() <= SPAWN_ALGAE_CHANCE // If there is enough space and it is in habitat ...
-                    && l.getCol() == super.getLocation().getCol() && isInHabitat(l)) {          
-                    newPlants.add(new Algae(super.getField(),l, super.getSim()));   /// Then grow there.
+    protected int chooseGrowthCells(int[] cells) {
+        Field field = super.getField();
+        Location location = super.getLocation();
+        if (field.isRooted(location.getRow(), location.getCol())) {// If it has any connection to ground (Soil).
+            int above = field.indexOf(location.getRow() - 1, location.getCol());
+            if (field.isFree(above) && SpawnScheduler.forThread().trial(Species.ALGAE, parameter(Parameters.GROWTH_PROBABILITY, SPAWN_ALGAE_CHANCE))) { // If there is enough space ...
+                if (isInHabitat(field.locationOf(above))) { // ... and it is in habitat
+                    cells[0] = above;   /// Then grow there.
+                    return 1;
                 }
             }
         }
+        return 0;
     }
-    
+
     /**
-     * Firstly, before growing a plant checks if it is still connected to ground so it has the ability to grow.
-     * This is done with this recursive method. Algae looks down recursively to check if it is conected to ground.
+     * Abstract method implemented:
+     * Returns a new Algae at the given location.
      * 
-     * @param currentLocation Location - the current location of the Plant.
+     * @param field - the current field.
+     * @param loc - the location of the new plant.
+     * @return Plant - the new Algae.
      */
-    private boolean isConnectedToGround(Location currentLocation) {
-        Location newLocation = new Location(currentLocation.getRow() + 1,
-                            currentLocation.getCol());
-        Object below = super.getField()
-                            .getObjectAt(newLocation);
-        if (below instanceof Algae) {
-            return isConnectedToGround(newLocation);
-        }else {
-            if (below instanceof Soil) {
-                return true;
-            }else {
-                return false;
-            }
-        }
+    protected Plant getNewPlant(Field field, Location loc) {
+        return new Algae(field, loc, super.getSim());
     }
-
+    
     /**
      * The simulator needs to know about the class color so it is provided here.
      * 
@@ -88,9 +78,31 @@ public class Algae extends Plant
      * @return FOOD_VALUE - the food value of this plant.
      */
     public int getFoodValue() {
-        return FOOD_VALUE;
+        return parameter(Parameters.FOOD_VALUE, FOOD_VALUE);
     }
     
+    /**
+     * The food value of the algae in a simulation, for the algae kept in a plant layer,
+     * which are no objects (see PlantLayer).
+     * 
+     * @param sim Simulator - the simulator reference.
+     * @return int - the food value.
+     */
+    public static int getFoodValue(Simulator sim) {
+        return sim.getParameters().get(Species.ALGAE, Parameters.FOOD_VALUE, FOOD_VALUE);
+    }
+    
+    /**
+     * The chance of the algae in a simulation growing into a free cell, for the algae
+     * kept in a plant layer (see PlantLayer).
+     * 
+     * @param sim Simulator - the simulator reference.
+     * @return double - the chance.
+     */
+    public static double getGrowthChance(Simulator sim) {
+        return sim.getParameters().get(Species.ALGAE, Parameters.GROWTH_PROBABILITY, SPAWN_ALGAE_CHANCE);
+    }
+
     /**
      * This method is used to check if an actor is in it's habitat at every step.
      * The habitat depends on the weather - because the sea level may vary.
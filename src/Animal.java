@@ -1,26 +1,26 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 import java.util.LinkedList;
 /**
  * A class representing shared characteristics of animals.
  * Abstract class - impemented through the specific hierarchy.
  * 
- * 
+ * The state of an animal is kept in the AnimalStore of its simulator,
+ * under the entity id the animal was given there; the object itself
+ * only holds the id.
  * 
  * @author Luca-Dorin Anton and Horia Pavel
  * @version v1.0
  */
 public abstract class Animal extends Actor
 {
-    // Whether the animal is alive or not.
-    private boolean alive;
-    // Age of the animal.
-    private int age;
-    // Current foodLevel of the animal.
-    private int foodLevel;
-    // Gender boolean variable.
-    private boolean isFemale;
+    // The id an animal has once it has left the simulation (see release()).
+    private static final int RELEASED = -1;
+
+    // Where the state of the animal - alive, age, food level and gender - is kept.
+    private final AnimalStore store;
+    // The entity id of the animal in the store.
+    private int id;
 
     private static final Random rand = Randomizer.getRandom();
 
@@ -35,15 +35,14 @@ public abstract class Animal extends Actor
     public Animal(boolean randomAge, Field field, Location location, Simulator sim)
     {
         super(field,location, sim);
-        alive = true;
-        this.isFemale = rand.nextBoolean();
+        store = sim.getAnimalStore();
+        boolean isFemale = rand.nextBoolean();
         if(randomAge) {
-            age = rand.nextInt(getMaxAge());
-            foodLevel = rand.nextInt(getMaxFoodLevel());
+            int age = rand.nextInt(getMaxAge());
+            id = store.add(this, isFemale, age, rand.nextInt(getMaxFoodLevel()));
         }
         else {
-            age = 0;
-            foodLevel = getMaxFoodLevel();
+            id = store.add(this, isFemale, 0, getMaxFoodLevel());
         }
     }
 
@@ -52,7 +51,7 @@ public abstract class Animal extends Actor
      * @return int - the food level as an integer value.
      */
     protected int getFoodLevel() {
-        return foodLevel;
+        return store.getFoodLevel(id);
     }
 
     /**
@@ -60,7 +59,7 @@ public abstract class Animal extends Actor
      * @param newFoodLevel - the food level which increase the current food level.
      */
     protected void increaseFoodLevel(int newFoodLevel) {
-        foodLevel = (foodLevel + newFoodLevel)%getMaxFoodLevel();
+        store.increaseFoodLevel(id, newFoodLevel);
     }
 
     /**
@@ -79,7 +78,7 @@ public abstract class Animal extends Actor
      */
     protected boolean isAlive()
     {
-        return alive;
+        return id != RELEASED && store.isAlive(id);
     }
 
     /**
@@ -88,20 +87,36 @@ public abstract class Animal extends Actor
      */
     protected void setDead()
     {
-        alive = false;
+        store.kill(id);
         if(super.getLocation() != null) {
             super.removeFromField();
         }
     }
 
+    /**
+     * Give the entity id of a dead animal back to the store, once it has left
+     * the actors (see ActorArena.compact()). The animal stays dead.
+     */
+    protected void release()
+    {
+        if(id != RELEASED) {
+            store.remove(id);
+            id = RELEASED;
+        }
+    }
+
     /**
      * Increments the hunger of the animal by decrementing the foodLevel.
      * If the foodLevel is 0 then the animal dies of starvation.
+     * With the aging mode AGE_IN_BATCH a predator has already got hungrier
+     * at the start of the step (see AnimalStore.ageAll()).
      */
     protected void incrementHunger()
     {
-        foodLevel--;
-        if(foodLevel <= 0) {
+        if(getSim().getAgingMode() == Simulator.AGE_IN_BATCH && store.hasSteadyHunger(id)) {
+            return;
+        }
+        if(!store.incrementHunger(id)) {
             setDead();
         }
     }
@@ -110,11 +125,15 @@ public abstract class Animal extends Actor
      * Increments the age of the animal.
      * If the age exceets the MAX_AGE constant the animal will die.
      * Note: the MAX_AGE constant is defined in each specific class and it may vary.
+     * With the aging mode AGE_IN_BATCH it has already got older at the start of
+     * the step (see AnimalStore.ageAll()).
      */
     protected void incrementAge()
     {
-        age++;
-        if(age > getMaxAge()) {
+        if(getSim().getAgingMode() == Simulator.AGE_IN_BATCH) {
+            return;
+        }
+        if(!store.incrementAge(id)) {
             setDead();
         }
     }
@@ -126,21 +145,137 @@ public abstract class Animal extends Actor
      */
     protected List<Animal> giveBirth() {
         List<Animal> newBorn = new LinkedList<>();
-        if (isFemale) {
-            Field field = getField();
-            List<Location> free = field.getFreeAdjacentLocations(getLocation());
-            for (Iterator<Location> it = free.iterator(); it.hasNext(); ) {
-                if ( !isInHabitat(it.next()) ) {
-                    it.remove();
-                } 
-            }
+        int[] cells = new int[Field.NEIGHBOURS];
+        int births = chooseBirthCells(cells);
+        Field field = getField();
+        for (int i = 0; i < births; i++) {
+            newBorn.add(getNewAnimal(field, field.locationOf(cells[i])));
+        }
+        return newBorn;
+    }
+
+    /**
+     * Work out whether the animal gives birth, and if so where the young go:
+     * to the free neighbouring cells that are in habitat.
+     * @param cells - int[] - where to put the cells, with room for every neighbour.
+     * @return int - how many young are born.
+     */
+    private int chooseBirthCells(int[] cells) {
+        int count = 0;
+        if (isFemale()) {
             int births = breed();
-            for(int b = 0; b < births && free.size() > 0; b++) {
-                Location loc = free.remove(0);
-                newBorn.add(getNewAnimal(field, loc));
+            if (births > 0) {
+                Field field = getField();
+                int here = field.indexOf(getLocation());
+                int order = field.randomNeighbourOrder();
+                for (int k = 0; k < Field.NEIGHBOURS && count < births; k++) {
+                    int next = field.neighbour(here, order, k);
+                    if (field.isFree(next) && isInHabitat(field.locationOf(next))) {
+                        cells[count++] = next;
+                    }
+                }
             }
         }
-        return newBorn;
+        return count;
+    }
+
+    /**
+     * Plan the births of this step (see Actor.plan()).
+     * @param intent - the plan.
+     */
+    protected void planBirths(Intent intent) {
+        intent.setBirthCount(chooseBirthCells(intent.getBirths()));
+    }
+
+    /**
+     * Carry out the plan of an animal, see Actor.commit(). The animal gets older and, unless
+     * resting, hungrier. If it lives on it eats the food it planned to, if no other animal
+     * got to it first, its young are born in the cells that are still free, and it moves
+     * if its cell is still free - otherwise it stays where it is.
+     * @param intent - the plan.
+     * @param newActors - the new born young.
+     */
+    protected void commit(Intent intent, List<Actor> newActors) {
+        if (intent.dies()) {
+            setDead();
+            return;
+        }
+        incrementAge();
+        if (intent.isResting() || !isAlive()) {
+            return;
+        }
+        incrementHunger();
+        if (!isAlive()) {
+            return;
+        }
+
+        Field field = getField();
+        Object food = intent.getFood();
+        if (food != null && field.getObjectAt(intent.getFoodCell()) == food) {
+            if (field.isLayerPlant(intent.getFoodCell())) {
+                eatLayerPlant(intent.getFoodCell());
+            }else {
+                eat(food);
+            }
+        }
+        int move = intent.getMove();
+        int[] births = intent.getBirths();
+        for (int i = 0; i < intent.getBirthCount(); i++) {
+            if (births[i] != move && field.isFree(births[i])) {
+                newActors.add(getNewAnimal(field, field.locationOf(births[i])));
+            }
+        }
+        if (move != Intent.NONE && field.isFree(move)) {
+            setLocation(field.locationOf(move));
+        }
+    }
+
+    /**
+     * Eat a prey or a plant: it dies and the animal gains its food value.
+     * @param food - Object - the prey or plant.
+     */
+    private void eat(Object food) {
+        if (food instanceof Prey) {
+            Prey prey = (Prey) food;
+            prey.setDead();
+            increaseFoodLevel(prey.getFoodValue());
+        }else if (food instanceof Plant) {
+            Plant plant = (Plant) food;
+            plant.setDead();
+            increaseFoodLevel(plant.getFoodValue());
+        }
+    }
+
+    /**
+     * Eat a plant of the plant layer (see PlantLayer): it is cleared from its cell and the
+     * animal gains its food value.
+     * @param cell - int - the cell of the plant.
+     */
+    protected void eatLayerPlant(int cell) {
+        Field field = getField();
+        increaseFoodLevel(PlantLayer.getFoodValue(field.getSpeciesAt(cell), getSim()));
+        field.clear(cell);
+    }
+
+    /**
+     * Find a random free neighbouring location that is in the habitat
+     * of this animal.
+     * @return Location - the location found, or null if there is none.
+     */
+    protected Location findFreeLocationInHabitat() {
+        Field field = getField();
+        int here = field.indexOf(getLocation());
+        int order = field.randomNeighbourOrder();
+        for (int k = 0; k < Field.NEIGHBOURS; k++) {
+            int next = field.neighbour(here, order, k);
+            if (field.isFree(next)) {
+                Location loc = field.locationOf(next);
+                if (isInHabitat(loc)) {
+                    return loc;
+                }
+            }
+        }
+        return null;
     }
     
     /**
@@ -215,7 +350,7 @@ public abstract class Animal extends Actor
      * @return boolean - isFemale.
      */
     protected boolean isFemale() {
-        return isFemale;
+        return store.isFemale(id);
     }
 
     /**
@@ -225,15 +360,18 @@ public abstract class Animal extends Actor
      */
     public boolean canBreed()
     {
-        if (!isFemale){
-            return age >= getBreedingAge() && foodLevel >= getMaxFoodLevel()/2;
+        if (!isFemale()){
+            return store.isReadyToBreed(id);
         }
 
-        if (age >= getBreedingAge() && foodLevel >= getMaxFoodLevel()/2) {
-            List possibleMates = getField().getSurroundingObjects(getLocation());
-            for ( Object obj : possibleMates ) {
-                if ( obj.getClass().getSimpleName().equals(this.getClass().getSimpleName()) ) {
-                    Animal mate = (Animal) obj; 
+        if (store.isReadyToBreed(id)) {
+            // Look for a mate among the neighbours - same species, opposite gender.
+            Field field = getField();
+            int here = field.indexOf(getLocation());
+            for ( int k = 0; k < Field.NEIGHBOURS; k++ ) {
+                int next = field.neighbour(here, 0, k);
+                if ( field.getSpeciesAt(next) == getSpeciesId() ) {
+                    Animal mate = (Animal) field.getObjectAt(next); 
                     if ( !mate.isFemale() ) {
                         if ( mate.canBreed() ) {
                             return true;
@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the state of the animals of a run in arrays of primitives, one
+ * entry per animal, instead of in the Animal objects.
+ *
+ * Every animal gets an entity id when it is made (see add()). Whether it
+ * is alive, its age, its food level and its gender are kept at that id in
+ * parallel arrays, and the constants of its species - how old it can get,
+ * when it can breed, how much food it can hold - in tables indexed by
+ * species id, read once from the species when its first animal is made.
+ * An Animal object only holds its id and reads and writes its state
+ * here, so getting older, getting hungrier and checking whether it can
+ * breed are a few array accesses rather than calls to the getters of the
+ * species, each of them looking up the Parameters of the simulator.
+ *
+ * With the aging mode AGE_IN_BATCH of the simulator, the animals do not
+ * get older one by one as they act: ageAll() makes them all older at the
+ * start of the step, in one pass over the pages, and the predators
+ * hungrier too. A prey only gets hungrier on the steps it moves, which it
+ * decides as it acts, so its hunger stays with the animal.
+ *
+ * The arrays are cut into pages of a fixed size that never move once
+ * made, so animals can be made on several threads (see TiledStepEngine)
+ * while others read and write their own entries. The id of a dead animal
+ * is only given to another one once the dead one has left the actors
+ * (see ActorArena.compact() and Animal.release()), so an animal that is
+ * still referred to - as the prey being chased, say - reads as dead
+ * until then.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class AnimalStore
+{
+    // How many animals a page holds, as a power of two.
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // The pages, by id / PAGE_SIZE; replaced by a longer copy when full.
+    private volatile Page[] pages;
+    // How many ids have been given out, and the ones given back.
+    private int ids;
+    private int[] freeIds;
+    private int freeCount;
+
+    // The constants of each species, by species id.
+    private final int[] maxAges;
+    private final int[] breedingAges;
+    private final int[] maxFoodLevels;
+    // Whether the animals of a species get hungrier every step they act, as the predators do.
+    private final boolean[] steadyHunger;
+    // Whether the constants of a species have been read.
+    private final boolean[] described;
+
+    /**
+     * Create an empty store.
+     */
+    public AnimalStore()
+    {
+        pages = new Page[0];
+        freeIds = new int[64];
+        maxAges = new int[Species.COUNT];
+        breedingAges = new int[Species.COUNT];
+        maxFoodLevels = new int[Species.COUNT];
+        steadyHunger = new boolean[Species.COUNT];
+        described = new boolean[Species.COUNT];
+    }
+
+    /**
+     * Give an entity id to a new animal, alive and with the given state.
+     * @param animal The animal; the constants of its species are read from it if they are not known yet.
+     * @param female Whether it is a female.
+     * @param age Its age.
+     * @param foodLevel Its food level.
+     * @return Its id.
+     */
+    public synchronized int add(Animal animal, boolean female, int age, int foodLevel)
+    {
+        byte species = animal.getSpeciesId();
+        if(!described[species]) {
+            maxAges[species] = animal.getMaxAge();
+            breedingAges[species] = animal.getBreedingAge();
+            maxFoodLevels[species] = animal.getMaxFoodLevel();
+            steadyHunger[species] = animal instanceof Predator;
+            described[species] = true;
+        }
+        int id;
+        if(freeCount > 0) {
+            id = freeIds[--freeCount];
+        }
+        else {
+            id = ids++;
+            if(id >>> PAGE_BITS == pages.length) {
+                Page[] grown = Arrays.copyOf(pages, pages.length + 1);
+                grown[pages.length] = new Page();
+                pages = grown;
+            }
+        }
+        Page page = pages[id >>> PAGE_BITS];
+        int i = id & PAGE_MASK;
+        page.animals[i] = animal;
+        page.alive[i] = true;
+        page.species[i] = species;
+        page.female[i] = female;
+        page.ages[i] = age;
+        page.foodLevels[i] = foodLevel;
+        return id;
+    }
+
+    /**
+     * Give back the id of a dead animal, for a new one to use.
+     * @param id The id.
+     */
+    public synchronized void remove(int id)
+    {
+        kill(id);
+        pages[id >>> PAGE_BITS].animals[id & PAGE_MASK] = null;
+        if(freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Mark an animal as dead.
+     * @param id The id of the animal.
+     */
+    public void kill(int id)
+    {
+        pages[id >>> PAGE_BITS].alive[id & PAGE_MASK] = false;
+    }
+
+    /**
+     * @param id The id of the animal.
+     * @return Whether it is alive.
+     */
+    public boolean isAlive(int id)
+    {
+        return pages[id >>> PAGE_BITS].alive[id & PAGE_MASK];
+    }
+
+    /**
+     * @param id The id of the animal.
+     * @return Whether it is a female.
+     */
+    public boolean isFemale(int id)
+    {
+        return pages[id >>> PAGE_BITS].female[id & PAGE_MASK];
+    }
+
+    /**
+     * @param id The id of the animal.
+     * @return Its age.
+     */
+    public int getAge(int id)
+    {
+        return pages[id >>> PAGE_BITS].ages[id & PAGE_MASK];
+    }
+
+    /**
+     * @param id The id of the animal.
+     * @return Its food level.
+     */
+    public int getFoodLevel(int id)
+    {
+        return pages[id >>> PAGE_BITS].foodLevels[id & PAGE_MASK];
+    }
+
+    /**
+     * Make an animal a step older.
+     * @param id The id of the animal.
+     * @return false if it is now older than its species can live.
+     */
+    public boolean incrementAge(int id)
+    {
+        Page page = pages[id >>> PAGE_BITS];
+        int i = id & PAGE_MASK;
+        return ++page.ages[i] <= maxAges[page.species[i]];
+    }
+
+    /**
+     * Make an animal a step hungrier.
+     * @param id The id of the animal.
+     * @return false if it has now starved.
+     */
+    public boolean incrementHunger(int id)
+    {
+        return --pages[id >>> PAGE_BITS].foodLevels[id & PAGE_MASK] > 0;
+    }
+
+    /**
+     * Check whether an animal gets hungrier every step it acts, so that
+     * ageAll() makes it hungrier.
+     * @param id The id of the animal.
+     * @return true for the predators.
+     */
+    public boolean hasSteadyHunger(int id)
+    {
+        return steadyHunger[pages[id >>> PAGE_BITS].species[id & PAGE_MASK]];
+    }
+
+    /**
+     * Make every live animal a step older, and those with a steady hunger a
+     * step hungrier, in one pass over the pages. The animals that die of it
+     * are set dead, which also takes them off the field. Only to be called
+     * while no animal acts.
+     */
+    public void ageAll()
+    {
+        Page[] all = pages;
+        for(int p = 0; p < all.length; p++) {
+            Page page = all[p];
+            int end = Math.min(PAGE_SIZE, ids - (p << PAGE_BITS));
+            for(int i = 0; i < end; i++) {
+                if(!page.alive[i]) {
+                    continue;
+                }
+                byte species = page.species[i];
+                boolean lives = ++page.ages[i] <= maxAges[species];
+                if(steadyHunger[species]) {
+                    lives &= --page.foodLevels[i] > 0;
+                }
+                if(!lives) {
+                    page.animals[i].setDead();
+                }
+            }
+        }
+    }
+
+    /**
+     * Feed an animal. A food level that would go over the most its
+     * species can hold wraps around, as it always has.
+     * @param id The id of the animal.
+     * @param food How much food it gains.
+     */
+    public void increaseFoodLevel(int id, int food)
+    {
+        Page page = pages[id >>> PAGE_BITS];
+        int i = id & PAGE_MASK;
+        page.foodLevels[i] = (page.foodLevels[i] + food) % maxFoodLevels[page.species[i]];
+    }
+
+    /**
+     * Check whether an animal is old enough and fed enough to breed; a
+     * female also needs a mate that is (see Animal.canBreed()).
+     * @param id The id of the animal.
+     * @return true if it is.
+     */
+    public boolean isReadyToBreed(int id)
+    {
+        Page page = pages[id >>> PAGE_BITS];
+        int i = id & PAGE_MASK;
+        byte species = page.species[i];
+        return page.ages[i] >= breedingAges[species] && page.foodLevels[i] >= maxFoodLevels[species] / 2;
+    }
+
+    /**
+     * The state of PAGE_SIZE animals, by id % PAGE_SIZE.
+     */
+    private static class Page
+    {
+        // The animals themselves, which are views of this state.
+        private final Animal[] animals = new Animal[PAGE_SIZE];
+        private final boolean[] alive = new boolean[PAGE_SIZE];
+        private final byte[] species = new byte[PAGE_SIZE];
+        private final boolean[] female = new boolean[PAGE_SIZE];
+        private final int[] ages = new int[PAGE_SIZE];
+        private final int[] foodLevels = new int[PAGE_SIZE];
+    }
+}
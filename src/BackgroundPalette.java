@@ -0,0 +1,166 @@
+/**
+ * The colours of the empty cells of a field, one per row: the sky above
+ * the water surface, whose colour follows the time of day, and the water
+ * below it, which darkens with depth. The weather moves the surface up
+ * or down.
+ *
+ * The colours only depend on the row, the weather and the time of day, so
+ * they are kept in a table that is only worked out again when one of
+ * those changes what it shows: the whole table when the weather changes,
+ * only the sky rows when the sky changes colour. Every change adds one to
+ * the version, so whoever draws the field can tell whether the background
+ * is still the one it drew last.
+ *
+ * A simulator keeps one table (see Simulator.getBackgroundPalette()) that
+ * everything drawing its field shares.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class BackgroundPalette
+{
+    // Ocean colors, as RGB.
+    private static final int SURFACE_COLOR = rgb(128, 179, 255);
+    private static final int OCEAN_COLOR = rgb(0, 61, 153);
+    // Sky colors.
+    private static final int MIDNIGHT_COLOR = rgb(7, 26, 76);
+    private static final int MORNING_COLOR = rgb(237, 181, 28);
+    private static final int NOON_COLOR = rgb(226, 253, 255);
+    private static final int EVENING_COLOR = rgb(226, 68, 0);
+    // The water surface level when the weather is normal.
+    private static final int NORMAL_WATER_SURFACE_LEVEL = 5;
+    // How many steps each of the four phases of the sky lasts.
+    private static final int PHASE_LENGTH = DayNightCycle.HOUR_LENGHT * 6;
+
+    // The colour of each row, as ARGB.
+    private final int[] rowColors;
+    // The weather and sky colour the table was worked out for.
+    private int weather;
+    private int skyColor;
+    // How many times the table has changed.
+    private volatile int version;
+
+    /**
+     * Create the table for a field of the given depth, for normal weather at midnight.
+     * @param depth The depth of the field.
+     */
+    public BackgroundPalette(int depth)
+    {
+        rowColors = new int[depth];
+        weather = Weather.NORMAL;
+        skyColor = skyColorAt(0);
+        rebuild(0, depth);
+    }
+
+    /**
+     * Bring the table up to date with the weather and the time of day.
+     * Nothing is worked out again unless the colours change.
+     * @param weather The weather, one of the Weather constants.
+     * @param timeOfDay The step of the day, as DayNightCycle.getCurrentTimeInt() gives.
+     * @return true if the table changed.
+     */
+    public boolean update(int weather, int timeOfDay)
+    {
+        int sky = skyColorAt(timeOfDay);
+        if(weather != this.weather) {
+            this.weather = weather;
+            skyColor = sky;
+            rebuild(0, rowColors.length);
+        }
+        else if(sky != skyColor) {
+            skyColor = sky;
+            rebuild(0, Math.min(surfaceLevel(), rowColors.length));
+        }
+        else {
+            return false;
+        }
+        version++;
+        return true;
+    }
+
+    /**
+     * Return the colours of the rows. The array is kept up to date by
+     * update(), so it must not be changed.
+     * @return The colour of each row, as ARGB.
+     */
+    public int[] getRowColors()
+    {
+        return rowColors;
+    }
+
+    /**
+     * Return how many times the table has changed.
+     * @return The version.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Work out the colours of the given rows again.
+     */
+    private void rebuild(int fromRow, int toRow)
+    {
+        int depth = rowColors.length;
+        int surface = surfaceLevel();
+        for(int row = fromRow; row < toRow; row++) {
+            if(row < surface) {
+                rowColors[row] = skyColor;
+            }
+            else {
+                // The water is lighter the closer it is to the top of the field.
+                rowColors[row] = blend(SURFACE_COLOR, OCEAN_COLOR, 1 - (double) row / depth);
+            }
+        }
+    }
+
+    /**
+     * Return the first row of water.
+     */
+    private int surfaceLevel()
+    {
+        return NORMAL_WATER_SURFACE_LEVEL + weather;
+    }
+
+    /**
+     * Return the colour of the sky at the given step of the day. It goes
+     * from midnight to morning, noon, evening and back to midnight.
+     */
+    private static int skyColorAt(int timeOfDay)
+    {
+        int dayPhase = timeOfDay / PHASE_LENGTH;
+        double timePercent = 1 - (double) (timeOfDay - dayPhase * PHASE_LENGTH) / (PHASE_LENGTH - 1);
+        if(dayPhase == 0) {
+            return blend(MIDNIGHT_COLOR, MORNING_COLOR, timePercent);
+        }
+        else if(dayPhase == 1) {
+            return blend(MORNING_COLOR, NOON_COLOR, timePercent);
+        }
+        else if(dayPhase == 2) {
+            return blend(NOON_COLOR, EVENING_COLOR, timePercent);
+        }
+        else {
+            return blend(EVENING_COLOR, MIDNIGHT_COLOR, timePercent);
+        }
+    }
+
+    /**
+     * Mix two colours: all of the first one when the share is 1, all of the second when it is 0.
+     */
+    private static int blend(int first, int second, double share)
+    {
+        int r = (int) Math.round(((first >> 16) & 0xFF) * share + ((second >> 16) & 0xFF) * (1 - share));
+        int g = (int) Math.round(((first >> 8) & 0xFF) * share + ((second >> 8) & 0xFF) * (1 - share));
+        int b = (int) Math.round((first & 0xFF) * share + (second & 0xFF) * (1 - share));
+        return rgb(r, g, b);
+    }
+
+    /**
+     * Pack the parts of a colour into one opaque ARGB int.
+     */
+    private static int rgb(int r, int g, int b)
+    {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,277 @@
+import java.util.Random;
+
+/**
+ * A hunting search that works on the bitboards of the Field instead of
+ * on the occupants themselves.
+ *
+ * The range means what it means to HuntingEngine: how many cells the
+ * search may expand, the predator's own cell first. Every level of the
+ * breadth first search expands all the empty cells reached at the level
+ * before, as long as that many expansions are left. When fewer are left,
+ * it expands as many of them as it can, chosen at random - as the random
+ * neighbour orders of HuntingEngine choose which of them come first.
+ * So a predator reaches as far, and finds its prey as often, in either
+ * search.
+ *
+ * Nothing the search reaches is further than range cells away, so it
+ * covers the square of (2 * range + 1) cells around the predator, which
+ * is at most 63 columns wide, and each of its rows fits in one long. The
+ * rows of the square are only read from the field as the search reaches
+ * them, which for most hunts is a few rows around the predator.
+ * A level grows the cells it expands by one cell in all directions with
+ * a few shifts and ORs per row, keeps the cells that are passable for
+ * the predator's species (see Field.getPassableBits()) and not yet
+ * reached, and checks them against the prey bits. Empty cells go on to
+ * the next level, occupied ones stop the search there. Only once a prey
+ * is hit is an object looked at.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class BitboardHunt
+{
+    // Returned by search() when no prey is within range.
+    public static final int NONE = -1;
+    // The widest range the square can hold in one long per row.
+    public static final int MAX_RANGE = 31;
+
+    // The random number generator used to choose between prey at the same distance.
+    private static final Random rand = Randomizer.getRandom();
+
+    // For each distance, the empty cells first reached at that distance;
+    // once a level is expanded, only the ones that were.
+    private long[][] layers;
+    // The cells reached so far.
+    private long[] reached;
+    // The cells that may be entered: in the field and passable.
+    private long[] allowed;
+    // The occupied and the prey cells of the square.
+    private long[] occupied;
+    private long[] prey;
+    // The prey reached at the last distance searched.
+    private long[] found;
+    // The cells kept by keepRandomCells().
+    private long[] kept;
+    // The rows of the square read so far by the current search.
+    private int firstRow;
+    private int lastRow;
+    // The prey cell chosen by the last search.
+    private int target;
+    // The cells from the predator's neighbour to that prey.
+    private int[] path;
+    private int pathLength;
+
+    /**
+     * Create a search. Its buffers grow to fit the largest range asked for.
+     */
+    public BitboardHunt()
+    {
+        target = NONE;
+    }
+
+    /**
+     * Look for the nearest prey of a predator.
+     * @param predator The predator hunting.
+     * @param field The field it hunts in.
+     * @param start The cell of the predator.
+     * @param range How many cells the search may expand, as for
+     *              HuntingEngine; at most MAX_RANGE.
+     * @return The cell next to the predator on a shortest way to the
+     *         nearest prey (the prey cell itself if it is next to the
+     *         predator), or NONE if there is no prey within range.
+     *         See preyCell().
+     */
+    public int search(Predator predator, Field field, int start, int range)
+    {
+        target = NONE;
+        pathLength = 0;
+        range = Math.min(range, MAX_RANGE);
+        if(range <= 0) {
+            return NONE;
+        }
+        int side = 2 * range + 1;
+        prepare(side, range);
+        int top = field.rowOf(start) - range;
+        int firstCol = field.colOf(start) - range;
+        byte species = predator.getSpeciesId();
+        firstRow = range;
+        lastRow = range - 1;
+        readRows(field, species, range, range, top, firstCol, side);
+        reached[range] = 1L << range;
+        layers[0][range] = 1L << range;
+
+        int expansions = range;
+        for(int distance = 1; distance <= range; distance++) {
+            long[] frontier = layers[distance - 1];
+            long[] next = layers[distance];
+            int count = 0;
+            for(int i = firstRow; i <= lastRow; i++) {
+                count += Long.bitCount(frontier[i]);
+            }
+            if(count > expansions) {
+                keepRandomCells(frontier, count, expansions);
+                count = expansions;
+            }
+            expansions -= count;
+            readRows(field, species, range - distance, range + distance, top, firstCol, side);
+            int hits = 0;
+            boolean spreading = false;
+            for(int i = firstRow; i <= lastRow; i++) {
+                long grown = frontier[i];
+                if(i > firstRow) {
+                    grown |= frontier[i - 1];
+                }
+                if(i < lastRow) {
+                    grown |= frontier[i + 1];
+                }
+                grown |= (grown << 1) | (grown >>> 1);
+                long fresh = grown & allowed[i] & ~reached[i];
+                reached[i] |= fresh;
+                found[i] = fresh & prey[i];
+                hits += Long.bitCount(found[i]);
+                next[i] = fresh & ~occupied[i];
+                spreading |= next[i] != 0;
+            }
+            if(hits > 0) {
+                return walkBack(field, distance, hits, top, firstCol);
+            }
+            if(!spreading || expansions == 0) {
+                return NONE;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Read the rows of the square from first to last that have not been
+     * read yet in this search, and clear what earlier searches left in them.
+     */
+    private void readRows(Field field, byte species, int first, int last, int top, int firstCol, int side)
+    {
+        for(int i = first; i <= last; i++) {
+            if(i >= firstRow && i <= lastRow) {
+                continue;
+            }
+            int row = top + i;
+            if(row >= 0 && row < field.getDepth()) {
+                allowed[i] = field.getPassableBits(species, row, firstCol, side);
+                occupied[i] = field.getOccupiedBits(row, firstCol, side);
+                prey[i] = field.getPreyBits(row, firstCol, side);
+            }
+            else {
+                allowed[i] = 0;
+            }
+            reached[i] = 0;
+            found[i] = 0;
+            for(long[] layer : layers) {
+                layer[i] = 0;
+            }
+        }
+        firstRow = Math.min(firstRow, first);
+        lastRow = Math.max(lastRow, last);
+    }
+
+    /**
+     * Keep only some of the cells of a level, chosen at random.
+     * @param cells The cells, one long per row of the square.
+     * @param count How many cells there are.
+     * @param keep How many to keep.
+     */
+    private void keepRandomCells(long[] cells, int count, int keep)
+    {
+        for(int i = firstRow; i <= lastRow; i++) {
+            kept[i] = 0;
+        }
+        for(int k = 0; k < keep; k++) {
+            int choice = rand.nextInt(count - k);
+            int row = firstRow;
+            while(choice >= Long.bitCount(cells[row])) {
+                choice -= Long.bitCount(cells[row]);
+                row++;
+            }
+            long bits = cells[row];
+            for(int skip = 0; skip < choice; skip++) {
+                bits &= bits - 1;
+            }
+            long bit = Long.lowestOneBit(bits);
+            cells[row] &= ~bit;
+            kept[row] |= bit;
+        }
+        System.arraycopy(kept, firstRow, cells, firstRow, lastRow - firstRow + 1);
+    }
+
+    /**
+     * @return The cell of the prey found by the last search, or NONE.
+     */
+    public int preyCell()
+    {
+        return target;
+    }
+
+    /**
+     * Copy the path found by the last search into an array.
+     * @param into The array, with room for at least range cells.
+     * @return How many cells the path has - the first is next to the
+     *         predator, the last is the prey. 0 if no prey was found.
+     */
+    public int getPath(int[] into)
+    {
+        System.arraycopy(path, 0, into, 0, pathLength);
+        return pathLength;
+    }
+
+    /**
+     * Choose one of the prey reached at the given distance at random and
+     * walk back from it to the cell next to the predator, each step going
+     * to a cell reached one step earlier. The cells walked through are
+     * kept as the path of the search.
+     */
+    private int walkBack(Field field, int distance, int hits, int top, int firstCol)
+    {
+        int choice = hits == 1 ? 0 : rand.nextInt(hits);
+        int row = firstRow;
+        while(choice >= Long.bitCount(found[row])) {
+            choice -= Long.bitCount(found[row]);
+            row++;
+        }
+        long bits = found[row];
+        for(int skip = 0; skip < choice; skip++) {
+            bits &= bits - 1;
+        }
+        int col = Long.numberOfTrailingZeros(bits);
+        target = field.indexOf(top + row, firstCol + col);
+        pathLength = distance;
+        path[distance - 1] = target;
+
+        for(int d = distance - 1; d >= 1; d--) {
+            long[] layer = layers[d];
+            long around = (7L << col) >>> 1;
+            if(row > firstRow && (layer[row - 1] & around) != 0) {
+                row--;
+            }
+            else if((layer[row] & around) == 0) {
+                row++;
+            }
+            col = Long.numberOfTrailingZeros(layer[row] & around);
+            path[d - 1] = field.indexOf(top + row, firstCol + col);
+        }
+        return path[0];
+    }
+
+    /**
+     * Make the buffers fit a square of the given side.
+     */
+    private void prepare(int side, int range)
+    {
+        if(reached == null || reached.length != side) {
+            reached = new long[side];
+            allowed = new long[side];
+            occupied = new long[side];
+            prey = new long[side];
+            found = new long[side];
+            kept = new long[side];
+            layers = new long[range + 1][side];
+            path = new int[range];
+        }
+    }
+}
@@ -43,7 +43,7 @@ public class Cod extends Prey
      * @return int - the food value of this entity.
      */
     public int getFoodValue() {
-        return MAX_FOOD_VALUE;
+        return parameter(Parameters.FOOD_VALUE, MAX_FOOD_VALUE);
     }
 
     /**
@@ -60,7 +60,7 @@ public class Cod extends Prey
      * @return int - the maximum food level.
      */
     protected int getMaxFoodLevel() {
-        return MAX_FOOD_LEVEL;
+        return parameter(Parameters.MAX_FOOD_LEVEL, MAX_FOOD_LEVEL);
     }
 
     /**
@@ -68,7 +68,7 @@ public class Cod extends Prey
      * @return int - the breeding age.
      */
     protected int getBreedingAge() {
-        return BREEDING_AGE;
+        return parameter(Parameters.BREEDING_AGE, BREEDING_AGE);
     }
 
     /**
@@ -76,7 +76,7 @@ public class Cod extends Prey
      * @return int - the maximum number of live young this entity can give birth to.
      */
     protected int getMaxSpawnSize() {
-        return MAX_SPAWN_SIZE;
+        return parameter(Parameters.MAX_SPAWN_SIZE, MAX_SPAWN_SIZE);
     }
 
     /**
@@ -84,7 +84,7 @@ public class Cod extends Prey
      * @return double - the probability as a double.
      */
     protected double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
+        return parameter(Parameters.BREEDING_PROBABILITY, BREEDING_PROBABILITY);
     }
 
     /**
@@ -102,7 +102,7 @@ public class Cod extends Prey
      * @return int - the maximum age of this entity.
      */
     protected int getMaxAge() {
-        return MAX_AGE;
+        return parameter(Parameters.MAX_AGE, MAX_AGE);
     }
 
     /**
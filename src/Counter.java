@@ -1,4 +1,3 @@
-import java.awt.Color;
 
 /**
  * Provide a counter for a participant in the simulation.
@@ -50,6 +49,15 @@ public class Counter
         count++;
     }
     
+    /**
+     * Set the current count.
+     * @param count The number of this type that exist.
+     */
+    public void setCount(int count)
+    {
+        this.count = count;
+    }
+
     /**
      * Reset the current count to zero.
      */
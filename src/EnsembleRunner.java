@@ -0,0 +1,255 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many simulations at once, without a display, and sums up how the
+ * populations ended.
+ *
+ * Every configuration - a name and a set of Parameters - is run once for
+ * every seed. The runs are independent Simulators, each on a thread of a
+ * pool of its own; a run stops at the step limit, or earlier when the
+ * simulation is no longer viable. As every simulator only draws from
+ * streams made from its own seed, a run gives the same results however
+ * many others run beside it.
+ *
+ * The statistics are written as comma separated values: for every
+ * configuration and species the number of runs, the mean, standard
+ * deviation, least and largest final population and in how many runs the
+ * species died out, and a row "steps" for how long the runs lasted.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class EnsembleRunner
+{
+    // The size of the fields.
+    private final int depth;
+    private final int width;
+    // The step limit of every run.
+    private final int steps;
+    // How many runs are made at the same time.
+    private final int threads;
+    // The names and parameters of the configurations.
+    private final List<String> names;
+    private final List<Parameters> configurations;
+    // The results of the last ensemble, by configuration and then seed.
+    private List<List<RunResult>> results;
+
+    /**
+     * Run an ensemble and write its statistics.
+     * @param args - the number of seeds (8 if not given), the step limit
+     *               (1000), the number of threads (one per processor), the
+     *               file to write to ("-" or none for the console), and
+     *               then any number of configurations such as
+     *               "Shark.max_hunting_range=10,Cod.breeding_probability=0.5".
+     *               The default parameters are always run first.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        String output = args.length > 3 ? args[3] : "-";
+
+        EnsembleRunner runner = new EnsembleRunner(120, 200, steps, threads);
+        runner.addConfiguration("defaults", new Parameters());
+        for(int i = 4; i < args.length; i++) {
+            runner.addConfiguration(args[i], Parameters.parse(args[i]));
+        }
+        long[] seedList = new long[seeds];
+        for(int i = 0; i < seeds; i++) {
+            seedList[i] = Randomizer.getSeed() + i;
+        }
+        runner.run(seedList);
+
+        if(output.equals("-")) {
+            PrintWriter out = new PrintWriter(System.out);
+            runner.writeStatistics(out);
+            out.flush();
+        }
+        else {
+            try(Writer out = new FileWriter(output)) {
+                runner.writeStatistics(out);
+            }
+        }
+    }
+
+    /**
+     * Create a runner.
+     * @param depth The depth of the fields.
+     * @param width The width of the fields.
+     * @param steps The step limit of every run.
+     * @param threads How many runs to make at the same time.
+     */
+    public EnsembleRunner(int depth, int width, int steps, int threads)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+        this.threads = Math.max(threads, 1);
+        names = new ArrayList<>();
+        configurations = new ArrayList<>();
+        results = new ArrayList<>();
+    }
+
+    /**
+     * Add a configuration to run.
+     * @param name The name it is shown by in the statistics.
+     * @param parameters The parameters of the species.
+     */
+    public void addConfiguration(String name, Parameters parameters)
+    {
+        names.add(name);
+        configurations.add(new Parameters(parameters));
+    }
+
+    /**
+     * Run every configuration once for every seed, and wait for all the
+     * runs to end.
+     * @param seeds The seeds.
+     */
+    public void run(long[] seeds)
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<List<Future<RunResult>>> futures = new ArrayList<>();
+            for(Parameters parameters : configurations) {
+                List<Future<RunResult>> runs = new ArrayList<>();
+                for(long seed : seeds) {
+                    runs.add(pool.submit(() -> runOnce(seed, parameters)));
+                }
+                futures.add(runs);
+            }
+
+            results = new ArrayList<>();
+            for(List<Future<RunResult>> runs : futures) {
+                List<RunResult> configurationResults = new ArrayList<>();
+                for(Future<RunResult> run : runs) {
+                    configurationResults.add(run.get());
+                }
+                results.add(configurationResults);
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The ensemble was interrupted.", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("A run of the ensemble failed.", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Make one run and read what is left in the field.
+     */
+    private RunResult runOnce(long seed, Parameters parameters)
+    {
+        Simulator simulator = new Simulator(depth, width, seed, parameters);
+        simulator.simulate(steps);
+
+        Field field = simulator.getField();
+        int[] populations = new int[Species.COUNT];
+        for(byte species = 0; species < Species.COUNT; species++) {
+            populations[species] = field.getPopulation(species);
+        }
+        return new RunResult(simulator.getStep(), populations);
+    }
+
+    /**
+     * Write the statistics of the last ensemble run.
+     * @param out Where to write them.
+     * @throws IOException If they could not be written.
+     */
+    public void writeStatistics(Writer out) throws IOException
+    {
+        out.write("configuration,species,runs,mean,stddev,min,max,extinctions\n");
+        for(int c = 0; c < results.size(); c++) {
+            List<RunResult> runs = results.get(c);
+            String name = quote(names.get(c));
+
+            double[] reached = new double[runs.size()];
+            for(int i = 0; i < runs.size(); i++) {
+                reached[i] = runs.get(i).steps;
+            }
+            writeRow(out, name, "steps", reached);
+
+            for(byte species = Species.SEAGULL; species <= Species.PLANKTON; species++) {
+                double[] populations = new double[runs.size()];
+                for(int i = 0; i < runs.size(); i++) {
+                    populations[i] = runs.get(i).populations[species];
+                }
+                writeRow(out, name, Species.classOf(species).getSimpleName(), populations);
+            }
+        }
+    }
+
+    /**
+     * Write one row of statistics of the given values.
+     */
+    private static void writeRow(Writer out, String configuration, String label, double[] values)
+        throws IOException
+    {
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        int zeros = 0;
+        for(double value : values) {
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if(value == 0) {
+                zeros++;
+            }
+        }
+        double mean = values.length > 0 ? sum / values.length : 0;
+        double squares = 0;
+        for(double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double stddev = values.length > 1 ? Math.sqrt(squares / (values.length - 1)) : 0;
+        if(values.length == 0) {
+            min = 0;
+            max = 0;
+        }
+        out.write(configuration + "," + label + "," + values.length + ","
+                  + String.format(Locale.ROOT, "%.2f,%.2f", mean, stddev) + ","
+                  + (long) min + "," + (long) max + "," + zeros + "\n");
+    }
+
+    /**
+     * Quote a name for a comma separated file.
+     */
+    private static String quote(String name)
+    {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * How one run ended.
+     */
+    private static class RunResult
+    {
+        // The step the run stopped at.
+        private final int steps;
+        // The number of cells of every species at the end, by species id.
+        private final int[] populations;
+
+        RunResult(int steps, int[] populations)
+        {
+            this.steps = steps;
+            this.populations = populations;
+        }
+    }
+}
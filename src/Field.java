@@ -1,13 +1,56 @@
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal.
  * 
+ * The grid is stored in one flat array, row after row, surrounded by a
+ * border of padding cells that hold a sentinel. A cell is addressed by
+ * its index (row + 1) * stride + (col + 1), so the eight neighbours of any
+ * cell are found by adding fixed offsets and never need a bounds check.
+ * Next to every occupant the field keeps its species id (see Species)
+ * in a parallel byte array.
+ * 
+ * For searches that want to look at 64 cells at a time the field also
+ * keeps two bitboards, one bit per cell and a row of longs per row:
+ * which cells are occupied and which of those hold prey. A row starts on
+ * a new long, so updates in columns that are 64 apart never share one.
+ * For the species that hunt on these bitboards there is a third, of the
+ * cells in their habitat, worked out again every step (see
+ * updatePassable()).
+ * 
+ * The field also counts the cells of every species as occupants are
+ * placed and cleared, so the population of a species is known without
+ * looking at the cells (see getPopulation()). The counts are LongAdders,
+ * as the tiles of a TiledStepEngine change the field at the same time.
+ * 
+ * A third bitboard records which cells changed species since the changes
+ * were last cleared (see clearChanges()), so that a view only needs to
+ * draw those again.
+ * 
+ * For views that show many cells per pixel the field is also cut into
+ * blocks of BLOCK_SIZE by BLOCK_SIZE cells, and keeps how many cells of
+ * each species every block holds. A block never straddles two tiles of a
+ * TiledStepEngine, as the tiles are multiples of 64 columns wide.
+ * 
+ * Algae only grow while the cells below them are algae all the way down
+ * to soil. For every column the field keeps its highest soil cell and the
+ * top of the run of algae standing on it, and moves them as algae and
+ * soil come and go, so that whether a cell is rooted is known without
+ * walking down the column (see isRooted()). A column only ever belongs to
+ * one tile of a TiledStepEngine.
+ * 
+ * Neither the terrain nor, in a plant layer (see PlantLayer), the plants
+ * need to be objects: such a cell is only its species id, with a shared
+ * marker in place of an occupant so that it still takes up its cell.
+ * The terrain never changes once placed.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -16,10 +59,56 @@ public class Field
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
     
+    // The object stored in the padding cells around the field.
+    private static final Object BORDER = new Object();
+    // The object stored in the cells of the plants kept in a plant layer (see PlantLayer).
+    private static final Object LAYER_PLANT = new Object();
+    // The object stored in the cells of the terrain (see placeTerrain()).
+    private static final Object TERRAIN = new Object();
+    // The side of a block of cells whose species are counted together.
+    public static final int BLOCK_SIZE = 8;
+    // How many neighbours a cell has.
+    public static final int NEIGHBOURS = 8;
+    // How many orders the neighbours of a cell can be visited in (8!).
+    private static final int ORDER_COUNT = 40320;
+    // Every order of the neighbours, NEIGHBOURS entries per order.
+    private static final byte[] ORDERS = buildOrders();
+    // The row and column steps of the eight neighbour directions.
+    private static final int[] ROW_STEPS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COL_STEPS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+
     // The depth and width of the field.
-    private int depth, width;
-    // Storage for the animals.
-    private Object[][] field;
+    private final int depth, width;
+    // The length of one padded row: the width plus a border cell each side.
+    private final int stride;
+    // Storage for the animals, including the padding cells.
+    private final Object[] cells;
+    // The species id of the occupant of each cell.
+    private final byte[] species;
+    // What to add to a cell index to reach each of its neighbours.
+    private final int[] neighbourOffsets;
+    // The one Location object used for each cell, created when first asked for.
+    private final Location[] locations;
+    // How many longs each row of a bitboard takes.
+    private final int wordsPerRow;
+    // One bit per cell: is the cell occupied, and does it hold a prey.
+    private final long[] occupiedBits;
+    private final long[] preyBits;
+    // One bit per cell: is the cell in the habitat of the species, by species id (see updatePassable()).
+    private final long[][] passableBits;
+    // One bit per cell: has the cell changed since clearChanges().
+    private final long[] changedBits;
+    // How many blocks there are across the field.
+    private final int blocksAcross;
+    // How many cells of each species every block holds, Species.COUNT per block.
+    // A block has at most 64 cells, so a byte is enough.
+    private final byte[] blockCounts;
+    // How many cells hold each species, by species id.
+    private final LongAdder[] populations;
+    // The highest soil cell of each column, depth if there is none.
+    private final int[] groundRows;
+    // The top of the run of algae standing on the ground of each column, the ground row if there is none.
+    private final int[] rootedTops;
 
     /**
      * Represent a field of the given dimensions.
@@ -30,7 +119,30 @@ public class Field
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        stride = width + 2;
+        cells = new Object[(depth + 2) * stride];
+        species = new byte[cells.length];
+        locations = new Location[cells.length];
+        wordsPerRow = (width + 63) >>> 6;
+        occupiedBits = new long[depth * wordsPerRow];
+        preyBits = new long[depth * wordsPerRow];
+        changedBits = new long[depth * wordsPerRow];
+        passableBits = new long[Species.COUNT][];
+        blocksAcross = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blockCounts = new byte[(depth + BLOCK_SIZE - 1) / BLOCK_SIZE * blocksAcross * Species.COUNT];
+        populations = new LongAdder[Species.COUNT];
+        for(int id = 0; id < Species.COUNT; id++) {
+            populations[id] = new LongAdder();
+        }
+        groundRows = new int[width];
+        rootedTops = new int[width];
+        neighbourOffsets = new int[NEIGHBOURS];
+        for(int direction = 0; direction < NEIGHBOURS; direction++) {
+            neighbourOffsets[direction] = ROW_STEPS[direction] * stride + COL_STEPS[direction];
+        }
+        Arrays.fill(cells, BORDER);
+        Arrays.fill(species, Species.BORDER);
+        clear();
     }
     
     /**
@@ -38,11 +150,27 @@ public class Field
      */
     public void clear()
     {
+        for(int row = 0; row < depth; row++) {
+            int start = indexOf(row, 0);
+            Arrays.fill(cells, start, start + width, null);
+            Arrays.fill(species, start, start + width, Species.EMPTY);
+        }
+        Arrays.fill(occupiedBits, 0);
+        Arrays.fill(preyBits, 0);
+        // Every cell may have changed.
+        Arrays.fill(changedBits, -1L);
+        Arrays.fill(blockCounts, (byte) 0);
         for(int row = 0; row < depth; row++) {
             for(int col = 0; col < width; col++) {
-                field[row][col] = null;
+                blockCounts[blockOf(row, col) + Species.EMPTY]++;
             }
         }
+        for(LongAdder population : populations) {
+            population.reset();
+        }
+        populations[Species.EMPTY].add((long) depth * width);
+        Arrays.fill(groundRows, depth);
+        Arrays.fill(rootedTops, depth);
     }
     
     /**
@@ -51,7 +179,16 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(indexOf(location));
+    }
+    
+    /**
+     * Clear the given cell. A cell of terrain stays as it is.
+     * @param index The index of the cell to clear.
+     */
+    public void clear(int index)
+    {
+        store(index, null, Species.EMPTY);
     }
     
     /**
@@ -64,7 +201,7 @@ public class Field
      */
     public void place(Object animal, int row, int col)
     {
-        place(animal, new Location(row, col));
+        place(animal, indexOf(row, col));
     }
     
     /**
@@ -76,7 +213,434 @@ public class Field
      */
     public void place(Object animal, Location location)
     {
-        field[location.getRow()][location.getCol()] = animal;
+        place(animal, indexOf(location));
+    }
+    
+    /**
+     * Place an animal in the given cell.
+     * If there is already an animal in the cell it will be lost.
+     * A cell of terrain stays as it is.
+     * @param animal The animal to be placed.
+     * @param index The index of the cell.
+     */
+    public void place(Object animal, int index)
+    {
+        store(index, animal, Species.idOf(animal));
+    }
+    
+    /**
+     * Place a cell of terrain, which is no actor and stays for the rest
+     * of the run: only its species id is kept, like a plant of the plant
+     * layer. The cell is never free, and nothing placed in it or cleared
+     * from it changes it, until the whole field is cleared.
+     * @param index The index of the cell.
+     * @param id The species id of the terrain, Species.ROCK or Species.SOIL.
+     */
+    public void placeTerrain(int index, byte id)
+    {
+        store(index, TERRAIN, id);
+    }
+    
+    /**
+     * Check whether a cell holds terrain placed with placeTerrain(), which
+     * is no object: getObjectAt() only gives a marker for it.
+     * @param index The cell index.
+     * @return true if the cell holds such terrain.
+     */
+    public boolean isTerrain(int index)
+    {
+        return cells[index] == TERRAIN;
+    }
+    
+    /**
+     * Place a plant of the plant layer in the given cell, see PlantLayer.
+     * If there is already an animal in the cell it will be lost.
+     * @param index The index of the cell.
+     * @param id The species id of the plant, Species.ALGAE or Species.PLANKTON.
+     */
+    public void placePlant(int index, byte id)
+    {
+        store(index, LAYER_PLANT, id);
+    }
+    
+    /**
+     * Check whether a cell holds a plant of the plant layer, which is no
+     * object: getObjectAt() only gives a marker for it.
+     * @param index The cell index.
+     * @return true if the cell holds such a plant.
+     */
+    public boolean isLayerPlant(int index)
+    {
+        return cells[index] == LAYER_PLANT;
+    }
+    
+    /**
+     * Put an occupant (or null) in a cell and keep the bitboards up to date.
+     * A cell of terrain is left as it is.
+     * @param index The index of the cell.
+     * @param occupant What to put there, null to empty the cell.
+     * @param id The species id of the occupant.
+     */
+    private void store(int index, Object occupant, byte id)
+    {
+        if(cells[index] == TERRAIN) {
+            return;
+        }
+        byte previous = species[index];
+        cells[index] = occupant;
+        species[index] = id;
+        int row = index / stride - 1;
+        int col = index - (row + 1) * stride - 1;
+        int word = row * wordsPerRow + (col >>> 6);
+        long bit = 1L << col;
+        if(previous != id) {
+            populations[previous].decrement();
+            populations[id].increment();
+            changedBits[word] |= bit;
+            int block = blockOf(row, col);
+            blockCounts[block + previous]--;
+            blockCounts[block + id]++;
+            if(previous == Species.ALGAE || previous == Species.SOIL
+               || id == Species.ALGAE || id == Species.SOIL) {
+                updateRoots(row, col, previous, id);
+            }
+        }
+        if(occupant == null) {
+            occupiedBits[word] &= ~bit;
+        }
+        else {
+            occupiedBits[word] |= bit;
+        }
+        if(Species.isPrey(id)) {
+            preyBits[word] |= bit;
+        }
+        else {
+            preyBits[word] &= ~bit;
+        }
+    }
+    
+    /**
+     * Return how many cells hold the given species, without looking at the cells.
+     * @param id The species id, Species.EMPTY for the free cells.
+     * @return The number of cells.
+     */
+    public int getPopulation(byte id)
+    {
+        return (int) populations[id].sum();
+    }
+    
+    /**
+     * Count the cells of every species again, one by one, and compare
+     * the result with the counts kept as the field changes. Only meant
+     * for checking, for example in an assert after a step.
+     * @return true if every count is right.
+     */
+    public boolean populationsMatchRecount()
+    {
+        int[] recount = new int[Species.COUNT];
+        for(int row = 0; row < depth; row++) {
+            int start = indexOf(row, 0);
+            for(int index = start; index < start + width; index++) {
+                recount[species[index]]++;
+            }
+        }
+        for(int id = 0; id < Species.COUNT; id++) {
+            if(recount[id] != populations[id].sum()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Work out the occupied and prey bitboards again from the cells, one
+     * by one, and compare them with the ones kept as the field changes.
+     * Only meant for checking, as populationsMatchRecount().
+     * @return true if every bit is right.
+     */
+    public boolean bitboardsMatchRecount()
+    {
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                int index = indexOf(row, col);
+                int word = row * wordsPerRow + (col >>> 6);
+                long bit = 1L << col;
+                if(((occupiedBits[word] & bit) != 0) != (cells[index] != null)
+                   || ((preyBits[word] & bit) != 0) != Species.isPrey(species[index])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Return the highest soil cell of a column.
+     * @param col The column.
+     * @return The row of the cell, or the depth of the field if the column has no soil.
+     */
+    public int getGroundRow(int col)
+    {
+        return groundRows[col];
+    }
+    
+    /**
+     * Move the ground and the rooted run of a column after a cell of it
+     * changed from or to algae or soil.
+     */
+    private void updateRoots(int row, int col, byte previous, byte id)
+    {
+        int ground = groundRows[col];
+        if(id == Species.SOIL && row < ground) {
+            // A new highest soil cell.
+            groundRows[col] = row;
+            rootedTops[col] = climbAlgae(row, col);
+        }
+        else if(previous == Species.SOIL && row == ground) {
+            // The highest soil cell is gone: the ground is the next soil cell down, if any.
+            int below = row + 1;
+            while(below < depth && species[indexOf(below, col)] != Species.SOIL) {
+                below++;
+            }
+            groundRows[col] = below;
+            rootedTops[col] = below < depth ? climbAlgae(below, col) : depth;
+        }
+        else if(row < ground && ground < depth) {
+            if(previous == Species.ALGAE && row >= rootedTops[col]) {
+                // The run is cut; what stood above the cell is no longer rooted.
+                rootedTops[col] = row + 1;
+            }
+            else if(id == Species.ALGAE && row == rootedTops[col] - 1) {
+                // The run grows, and may join algae already standing above it.
+                rootedTops[col] = climbAlgae(row + 1, col);
+            }
+        }
+    }
+    
+    /**
+     * Return the top of the run of algae just above the given row of a column.
+     */
+    private int climbAlgae(int row, int col)
+    {
+        int top = row;
+        while(top > 0 && species[indexOf(top - 1, col)] == Species.ALGAE) {
+            top--;
+        }
+        return top;
+    }
+    
+    /**
+     * Return whether the cells below a cell are algae all the way down to
+     * soil, as they have to be for algae in the cell to grow. Above the
+     * highest soil cell of the column this needs no walk down the column.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return true if the cell is rooted.
+     */
+    public boolean isRooted(int row, int col)
+    {
+        int ground = groundRows[col];
+        if(ground == depth) {
+            return false;
+        }
+        if(row < ground) {
+            return row >= rootedTops[col] - 1;
+        }
+        // Below the highest soil cell, which the terrain never leaves room for.
+        return isRootedByWalk(row, col);
+    }
+    
+    /**
+     * Work out whether a cell is rooted by walking down its column.
+     */
+    private boolean isRootedByWalk(int row, int col)
+    {
+        int below = row + 1;
+        while(below < depth && species[indexOf(below, col)] == Species.ALGAE) {
+            below++;
+        }
+        return below < depth && species[indexOf(below, col)] == Species.SOIL;
+    }
+    
+    /**
+     * Check every cell of the field against the rooted runs kept as the
+     * field changes. Only meant for checking, for example in an assert
+     * after a step.
+     * @return true if every cell is rooted exactly when isRooted() says so.
+     */
+    public boolean rootsMatchWalk()
+    {
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                if(isRooted(row, col) != isRootedByWalk(row, col)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Return how many cells of a species a block holds.
+     * @param blockRow The row of the block: the row of a cell divided by BLOCK_SIZE.
+     * @param blockCol The column of the block.
+     * @param id The species id.
+     * @return The number of cells.
+     */
+    public int getBlockCount(int blockRow, int blockCol, byte id)
+    {
+        return blockCounts[(blockRow * blocksAcross + blockCol) * Species.COUNT + id];
+    }
+    
+    /**
+     * Return the species that holds the most cells of a block, other than empty cells.
+     * @param blockRow The row of the block: the row of a cell divided by BLOCK_SIZE.
+     * @param blockCol The column of the block.
+     * @return The species id, or Species.EMPTY if the block is empty.
+     */
+    public byte getDominantSpecies(int blockRow, int blockCol)
+    {
+        int block = (blockRow * blocksAcross + blockCol) * Species.COUNT;
+        byte dominant = Species.EMPTY;
+        int most = 0;
+        for(byte id = 0; id < Species.COUNT; id++) {
+            if(id != Species.EMPTY && blockCounts[block + id] > most) {
+                most = blockCounts[block + id];
+                dominant = id;
+            }
+        }
+        return dominant;
+    }
+    
+    /**
+     * Return where the counts of the block of a cell start.
+     */
+    private int blockOf(int row, int col)
+    {
+        return ((row / BLOCK_SIZE) * blocksAcross + col / BLOCK_SIZE) * Species.COUNT;
+    }
+    
+    /**
+     * Copy the species ids of a row, for example into a snapshot of the field.
+     * @param row The row.
+     * @param into Where to copy them, one byte per column.
+     * @param offset Where in the array the row starts.
+     */
+    public void copySpeciesRow(int row, byte[] into, int offset)
+    {
+        System.arraycopy(species, indexOf(row, 0), into, offset, width);
+    }
+    
+    /**
+     * Return which cells of part of a row have changed species since
+     * clearChanges(), in the same form as getOccupiedBits().
+     * @param row The row.
+     * @param col The first column.
+     * @param length How many columns, at most 64.
+     * @return The bits.
+     */
+    public long getChangedBits(int row, int col, int length)
+    {
+        return bits(changedBits, row, col, length);
+    }
+    
+    /**
+     * Forget which cells have changed, for example at the start of a step.
+     */
+    public void clearChanges()
+    {
+        Arrays.fill(changedBits, 0);
+    }
+    
+    /**
+     * Return which cells of part of a row are occupied, as a bitboard
+     * slice: bit i stands for column col + i. Columns outside the field
+     * read as 0.
+     * @param row The row.
+     * @param col The first column.
+     * @param length How many columns, at most 64.
+     * @return The bits.
+     */
+    public long getOccupiedBits(int row, int col, int length)
+    {
+        return bits(occupiedBits, row, col, length);
+    }
+    
+    /**
+     * Return which cells of part of a row hold prey, in the same form
+     * as getOccupiedBits().
+     * @param row The row.
+     * @param col The first column.
+     * @param length How many columns, at most 64.
+     * @return The bits.
+     */
+    public long getPreyBits(int row, int col, int length)
+    {
+        return bits(preyBits, row, col, length);
+    }
+    
+    /**
+     * Work out which cells are in the habitat of a species, for the
+     * searches that read them with getPassableBits(). A habitat may
+     * change from step to step - with the weather, say - so this is done
+     * again at the start of every step that needs it.
+     * @param id The species id.
+     * @param habitat Whether a location is in the habitat of the species.
+     */
+    public void updatePassable(byte id, Predicate<Location> habitat)
+    {
+        if(passableBits[id] == null) {
+            passableBits[id] = new long[depth * wordsPerRow];
+        }
+        long[] board = passableBits[id];
+        Arrays.fill(board, 0);
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                if(habitat.test(getLocation(row, col))) {
+                    board[row * wordsPerRow + (col >>> 6)] |= 1L << col;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Return which cells of part of a row are in the habitat of a
+     * species, as last worked out by updatePassable(), in the same form
+     * as getOccupiedBits(). All 0 if it never was.
+     * @param id The species id.
+     * @param row The row.
+     * @param col The first column.
+     * @param length How many columns, at most 64.
+     * @return The bits.
+     */
+    public long getPassableBits(byte id, int row, int col, int length)
+    {
+        if(passableBits[id] == null) {
+            return 0;
+        }
+        return bits(passableBits[id], row, col, length);
+    }
+    
+    /**
+     * Cut a slice of up to 64 columns out of a row of a bitboard.
+     */
+    private long bits(long[] board, int row, int col, int length)
+    {
+        int from = Math.max(col, 0);
+        int to = Math.min(col + length, width);
+        if(from >= to) {
+            return 0;
+        }
+        int word = row * wordsPerRow + (from >>> 6);
+        int shift = from & 63;
+        long value = board[word] >>> shift;
+        if(shift != 0 && (from >>> 6) + 1 < wordsPerRow) {
+            value |= board[word + 1] << (64 - shift);
+        }
+        if(to - from < 64) {
+            value &= (1L << (to - from)) - 1;
+        }
+        return value << (from - col);
     }
     
     /**
@@ -97,27 +661,225 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col];
+        return cells[indexOf(row, col)];
     }
     
-    public List<Object> getSurroundingObjects(Location loc) {
-        List<Location> surrLocations = adjacentLocations(loc);
-        List objectList = new LinkedList();
-        for ( Location location : surrLocations ) {
-            Object object = getObjectAt(location);
-            if ( object != null ) {
-                objectList.add(object);
+    /**
+     * Return the species id of whatever is at the given location.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The species id, Species.EMPTY if there is nothing there.
+     */
+    public byte getSpeciesAt(int row, int col)
+    {
+        return species[indexOf(row, col)];
+    }
+    
+    /**
+     * Return the index of the given position in the flat storage.
+     * The index doubles as a packed form of the coordinates: it is
+     * unique for every cell of any field that fits in memory and the
+     * index-taking methods of this class accept it in place of a Location.
+     * Rows and columns one step outside the field address the border.
+     * @param row The row.
+     * @param col The column.
+     * @return The cell index.
+     */
+    public int indexOf(int row, int col)
+    {
+        return (row + 1) * stride + col + 1;
+    }
+    
+    /**
+     * Return the index of the given location in the flat storage.
+     * @param location The location.
+     * @return The cell index.
+     */
+    public int indexOf(Location location)
+    {
+        return indexOf(location.getRow(), location.getCol());
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * A border cell holds a sentinel object, which is never an Actor.
+     * @param index The cell index.
+     * @return The occupant of the cell, or null if there is none.
+     */
+    public Object getObjectAt(int index)
+    {
+        return cells[index];
+    }
+    
+    /**
+     * Return the species id of whatever is in the given cell.
+     * @param index The cell index.
+     * @return The species id, Species.BORDER for a border cell.
+     */
+    public byte getSpeciesAt(int index)
+    {
+        return species[index];
+    }
+    
+    /**
+     * Check whether a cell is empty. Border cells are never free.
+     * @param index The cell index.
+     * @return true if nothing occupies the cell.
+     */
+    public boolean isFree(int index)
+    {
+        return cells[index] == null;
+    }
+    
+    /**
+     * Count the free cells around a cell. Border cells are never free.
+     * @param index The cell index.
+     * @return How many of its neighbours are free.
+     */
+    public int countFreeNeighbours(int index)
+    {
+        int free = 0;
+        for(int offset : neighbourOffsets) {
+            if(cells[index + offset] == null) {
+                free++;
             }
         }
-        return objectList;
+        return free;
+    }
+    
+    /**
+     * Check whether a cell lies within the field rather than on its border.
+     * @param index The cell index.
+     * @return true if the cell is part of the field.
+     */
+    public boolean isInside(int index)
+    {
+        return species[index] != Species.BORDER;
+    }
+    
+    /**
+     * Return the row of the given cell.
+     * @param index The cell index.
+     * @return The row.
+     */
+    public int rowOf(int index)
+    {
+        return index / stride - 1;
+    }
+    
+    /**
+     * Return the column of the given cell.
+     * @param index The cell index.
+     * @return The column.
+     */
+    public int colOf(int index)
+    {
+        return index % stride - 1;
+    }
+    
+    /**
+     * Return the location of the given cell. The field hands out one
+     * Location object per cell, so the same object comes back every time
+     * and nothing is allocated after the first request.
+     * Should two threads ask for a new cell at once, each may create
+     * its own object; both are equal and immutable, so either is fine.
+     * @param index The cell index.
+     * @return The location of the cell.
+     */
+    public Location locationOf(int index)
+    {
+        Location location = locations[index];
+        if(location == null) {
+            location = new Location(rowOf(index), colOf(index));
+            locations[index] = location;
+        }
+        return location;
+    }
+    
+    /**
+     * Return the location of the given position, see locationOf().
+     * @param row The row.
+     * @param col The column.
+     * @return The location of the position.
+     */
+    public Location getLocation(int row, int col)
+    {
+        return locationOf(indexOf(row, col));
+    }
+    
+    /**
+     * Pick a random order in which to visit the neighbours of a cell.
+     * Together with neighbour() this acts as a cursor over the eight
+     * neighbours that allocates nothing and costs one random draw:
+     * <pre>
+     *     int order = field.randomNeighbourOrder();
+     *     for(int k = 0; k &lt; Field.NEIGHBOURS; k++) {
+     *         int next = field.neighbour(index, order, k);
+     *         ...
+     *     }
+     * </pre>
+     * Neighbours of a cell on the edge include border cells, which are
+     * never free and never hold an Actor.
+     * @return An order to pass to neighbour().
+     */
+    public int randomNeighbourOrder()
+    {
+        return rand.nextInt(ORDER_COUNT) * NEIGHBOURS;
+    }
+    
+    /**
+     * Return one of the neighbours of a cell.
+     * @param index The cell whose neighbour is wanted.
+     * @param order An order from randomNeighbourOrder().
+     * @param k Which neighbour in that order, from 0 to NEIGHBOURS - 1.
+     * @return The index of the neighbouring cell.
+     */
+    public int neighbour(int index, int order, int k)
+    {
+        return index + neighbourOffsets[ORDERS[order + k]];
+    }
+    
+    /**
+     * Return the direction of one of the neighbours in an order, for
+     * callers that keep their own grids laid out like the field.
+     * @param order An order from randomNeighbourOrder().
+     * @param k Which neighbour in that order, from 0 to NEIGHBOURS - 1.
+     * @return The direction, from 0 to NEIGHBOURS - 1 (see directionRow/Col).
+     */
+    public int neighbourDirection(int order, int k)
+    {
+        return ORDERS[order + k];
+    }
+    
+    /**
+     * @param direction A neighbour direction.
+     * @return The row step (-1, 0 or 1) of that direction.
+     */
+    public static int directionRow(int direction)
+    {
+        return ROW_STEPS[direction];
+    }
+    
+    /**
+     * @param direction A neighbour direction.
+     * @return The column step (-1, 0 or 1) of that direction.
+     */
+    public static int directionCol(int direction)
+    {
+        return COL_STEPS[direction];
+    }
+    
+    public List<Object> getSurroundingObjects(Location loc) {
+        return getSurroundingObjects(loc.getRow(), loc.getCol());
     }
     
     public List<Object> getSurroundingObjects(int row, int col) {
-        List<Location> surrLocations = adjacentLocations(new Location(row,col));
         List objectList = new LinkedList();
-        for ( Location location : surrLocations ) {
-            Object object = getObjectAt(location);
-            if ( object != null ) {
+        int index = indexOf(row, col);
+        int order = randomNeighbourOrder();
+        for(int k = 0; k < NEIGHBOURS; k++) {
+            Object object = cells[neighbour(index, order, k)];
+            if ( object != null && object != BORDER ) {
                 objectList.add(object);
             }
         }
@@ -134,8 +896,15 @@ public class Field
      */
     public Location randomAdjacentLocation(Location location)
     {
-        List<Location> adjacent = adjacentLocations(location);
-        return adjacent.get(0);
+        int index = indexOf(location);
+        int order = randomNeighbourOrder();
+        for(int k = 0; k < NEIGHBOURS; k++) {
+            int next = neighbour(index, order, k);
+            if(isInside(next)) {
+                return locationOf(next);
+            }
+        }
+        return location;
     }
     
     /**
@@ -146,10 +915,12 @@ public class Field
     public List<Location> getFreeAdjacentLocations(Location location)
     {
         List<Location> free = new LinkedList<>();
-        List<Location> adjacent = adjacentLocations(location);
-        for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
-                free.add(next);
+        int index = indexOf(location);
+        int order = randomNeighbourOrder();
+        for(int k = 0; k < NEIGHBOURS; k++) {
+            int next = neighbour(index, order, k);
+            if(cells[next] == null) {
+                free.add(locationOf(next));
             }
         }
         return free;
@@ -165,14 +936,15 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
-        }
-        else {
-            return null;
+        int index = indexOf(location);
+        int order = randomNeighbourOrder();
+        for(int k = 0; k < NEIGHBOURS; k++) {
+            int next = neighbour(index, order, k);
+            if(cells[next] == null) {
+                return locationOf(next);
+            }
         }
+        return null;
     }
 
     /**
@@ -188,27 +960,66 @@ public class Field
         // The list of locations to be returned.
         List<Location> locations = new LinkedList<>();
         if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
+            // The neighbours come out in a random order. Several other
+            // methods rely on the list being in a random order.
+            int index = indexOf(location);
+            int order = randomNeighbourOrder();
+            for(int k = 0; k < NEIGHBOURS; k++) {
+                int next = neighbour(index, order, k);
+                if(isInside(next)) {
+                    locations.add(locationOf(next));
                 }
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
         }
         return locations;
     }
+    
+    /**
+     * Build the table of all the orders in which the eight neighbours
+     * can be visited, NEIGHBOURS entries per order.
+     * @return The table of orders.
+     */
+    private static byte[] buildOrders()
+    {
+        byte[] orders = new byte[ORDER_COUNT * NEIGHBOURS];
+        byte[] current = new byte[NEIGHBOURS];
+        for(byte i = 0; i < NEIGHBOURS; i++) {
+            current[i] = i;
+        }
+        // Heap's algorithm, iterative form: each swap yields the next order.
+        int[] counters = new int[NEIGHBOURS];
+        int written = 0;
+        System.arraycopy(current, 0, orders, written, NEIGHBOURS);
+        written += NEIGHBOURS;
+        int i = 0;
+        while(i < NEIGHBOURS) {
+            if(counters[i] < i) {
+                int j = (i % 2 == 0) ? 0 : counters[i];
+                byte swap = current[j];
+                current[j] = current[i];
+                current[i] = swap;
+                System.arraycopy(current, 0, orders, written, NEIGHBOURS);
+                written += NEIGHBOURS;
+                counters[i]++;
+                i = 0;
+            }
+            else {
+                counters[i] = 0;
+                i++;
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Return the number of cells in the flat storage, border included.
+     * Every cell index is below this.
+     * @return The number of cells.
+     */
+    public int getCellCount()
+    {
+        return cells.length;
+    }
 
     /**
      * Return the depth of the field.
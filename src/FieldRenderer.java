@@ -0,0 +1,438 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws snapshots of a field (see FrameSnapshot) into an image, writing
+ * the pixels straight into the int array behind the image instead of
+ * going through Graphics.
+ *
+ * The image shows a viewport: the part of the field from a given first
+ * row and column that fits in the image, at a given zoom (see setView()).
+ * Only the cells in view are drawn, so the cost of a frame depends on the
+ * size of the image and not on the size of the field.
+ *
+ * Zoomed in, every cell is a rectangle of pixels, less a line of one pixel
+ * at its right and bottom that shows the grid. The colour of a cell comes
+ * from a palette indexed by species id; an empty cell takes the background
+ * colour of its row. A row of cells is drawn by filling the first line of
+ * its pixels and copying that line down.
+ *
+ * Zoomed out, every pixel stands for several cells. Below BLOCK_SIZE cells
+ * a pixel it shows the first of them; from there on it shows the block of
+ * cells it falls in (see Field.BLOCK_SIZE), in the colour of the species
+ * holding most of the block, mixed with the background as much as the
+ * block is empty.
+ *
+ * Between steps most cells stay the same, so while zoomed in update() only
+ * draws the cells in view the snapshot says have changed since the one
+ * drawn before it, and tells which part of the image that touched. When
+ * the background changes with the weather or the time of day, the rows
+ * whose colour changed are drawn again in full - usually only the few rows
+ * of sky. The whole image is drawn again when the snapshot shows a new
+ * field, the view changes, or it is zoomed out. The lines of pixels can be
+ * drawn on several threads at once.
+ *
+ * The renderer needs no display, so it can also draw fields for a
+ * simulation that runs without one.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class FieldRenderer
+{
+    // How many rows of cells or lines of pixels a thread draws at least.
+    private static final int ROWS_PER_TASK = 16;
+
+    // The colour of every species, by species id, as ARGB.
+    private final int[] palette;
+    // The colour of the grid lines between the cells, and of what lies outside the field.
+    private int gridColor;
+    // Whether the rows are drawn on several threads.
+    private boolean parallel;
+
+    // The image drawn into and the pixels behind it.
+    private BufferedImage image;
+    private int[] pixels;
+    // The cell in the top left corner of the image.
+    private int firstRow, firstCol;
+    // Zoomed in: the size of a cell in pixels. Zoomed out: 1.
+    private int cellWidth, cellHeight;
+    // Zoomed out: how many cells a pixel stands for, across and down. Zoomed in: 1.
+    private int cellsPerPixel;
+    // Whether the image shows the view of the last snapshot, and the background colours and version it was drawn with.
+    private boolean drawn;
+    private int[] drawnBackgrounds;
+    private int drawnVersion;
+
+    /**
+     * Create a renderer that draws every species in the given colour
+     * until told otherwise (see setColor()).
+     * @param unknownColor The colour of the species without one.
+     * @param gridColor The colour of the lines between the cells.
+     */
+    public FieldRenderer(Color unknownColor, Color gridColor)
+    {
+        palette = new int[Species.COUNT];
+        Arrays.fill(palette, unknownColor.getRGB());
+        this.gridColor = gridColor.getRGB();
+        parallel = false;
+        cellWidth = 1;
+        cellHeight = 1;
+        cellsPerPixel = 1;
+    }
+
+    /**
+     * Set the colour a species is drawn in.
+     * @param id The species id.
+     * @param color The colour.
+     */
+    public void setColor(byte id, Color color)
+    {
+        palette[id] = color.getRGB();
+        drawn = false;
+    }
+
+    /**
+     * Set whether the rows are drawn on several threads.
+     * @param parallel true to use the threads of the common ForkJoinPool.
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Set the part of the field shown and the size of the image.
+     * @param firstRow The row of the cell in the top left corner.
+     * @param firstCol The column of the cell in the top left corner.
+     * @param cellWidth The width of a cell in pixels, when zoomed in.
+     * @param cellHeight The height of a cell in pixels, when zoomed in.
+     * @param cellsPerPixel How many cells a pixel stands for, across and
+     *                      down; more than 1 to zoom out, in which case
+     *                      the cell sizes are ignored.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     */
+    public void setView(int firstRow, int firstCol, int cellWidth, int cellHeight, int cellsPerPixel,
+                        int width, int height)
+    {
+        cellsPerPixel = Math.max(cellsPerPixel, 1);
+        if(cellsPerPixel > 1) {
+            cellWidth = 1;
+            cellHeight = 1;
+        }
+        cellWidth = Math.max(cellWidth, 1);
+        cellHeight = Math.max(cellHeight, 1);
+        if(firstRow != this.firstRow || firstCol != this.firstCol || cellWidth != this.cellWidth
+           || cellHeight != this.cellHeight || cellsPerPixel != this.cellsPerPixel) {
+            this.firstRow = firstRow;
+            this.firstCol = firstCol;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+            this.cellsPerPixel = cellsPerPixel;
+            drawn = false;
+        }
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        if(image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            drawn = false;
+        }
+    }
+
+    /**
+     * Draw the whole field of a snapshot, every cell the given size. The
+     * image is made again only when the size of the field or of the cells
+     * changes.
+     * @param frame The snapshot to draw.
+     * @param xScale The width of a cell in pixels.
+     * @param yScale The height of a cell in pixels.
+     * @return The image drawn.
+     */
+    public BufferedImage render(FrameSnapshot frame, int xScale, int yScale)
+    {
+        setView(0, 0, xScale, yScale, 1, frame.getWidth() * xScale, frame.getDepth() * yScale);
+        render(frame);
+        return image;
+    }
+
+    /**
+     * Bring the image of the whole field up to date with a snapshot taken
+     * after the one drawn last, every cell the given size.
+     * @param frame The snapshot to draw.
+     * @param xScale The width of a cell in pixels.
+     * @param yScale The height of a cell in pixels.
+     * @return The part of the image drawn, or null if nothing changed.
+     */
+    public Rectangle update(FrameSnapshot frame, int xScale, int yScale)
+    {
+        setView(0, 0, xScale, yScale, 1, frame.getWidth() * xScale, frame.getDepth() * yScale);
+        return update(frame);
+    }
+
+    /**
+     * Draw the view of a snapshot in full (see setView()).
+     * @param frame The snapshot to draw.
+     */
+    public void render(FrameSnapshot frame)
+    {
+        int lines = cellsPerPixel > 1 ? image.getHeight() : (image.getHeight() + cellHeight - 1) / cellHeight;
+        if(parallel && lines > ROWS_PER_TASK) {
+            ForkJoinPool.commonPool().invoke(new RowRendering(frame, 0, lines));
+        }
+        else {
+            renderLines(frame, 0, lines);
+        }
+        drawn = true;
+        drawnBackgrounds = frame.getRowColors().clone();
+        drawnVersion = frame.getBackgroundVersion();
+    }
+
+    /**
+     * Bring the view up to date with a snapshot taken after the one drawn
+     * last: only the cells that changed are drawn, unless the whole view
+     * has to be.
+     * @param frame The snapshot to draw.
+     * @return The part of the image drawn, or null if nothing changed.
+     */
+    public Rectangle update(FrameSnapshot frame)
+    {
+        if(!drawn || frame.isNewField() || cellsPerPixel > 1
+           || drawnBackgrounds.length != frame.getDepth()) {
+            render(frame);
+            return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        }
+        int version = frame.getBackgroundVersion();
+        Rectangle changed = renderChanges(frame, version != drawnVersion);
+        drawnVersion = version;
+        return changed;
+    }
+
+    /**
+     * Return the image last drawn.
+     * @return The image, or null if nothing was drawn yet.
+     */
+    public BufferedImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Draw the given rows of cells in view (zoomed in) or lines of pixels (zoomed out).
+     */
+    private void renderLines(FrameSnapshot frame, int from, int to)
+    {
+        for(int line = from; line < to; line++) {
+            if(cellsPerPixel > 1) {
+                renderPixelLine(frame, line);
+            }
+            else {
+                renderCellRow(frame, line);
+            }
+        }
+    }
+
+    /**
+     * Draw one row of cells in view, zoomed in.
+     * @param viewRow The row of cells, counted from the top of the image.
+     */
+    private void renderCellRow(FrameSnapshot frame, int viewRow)
+    {
+        int imageWidth = image.getWidth();
+        int top = viewRow * cellHeight;
+        int lines = Math.min(cellHeight, image.getHeight() - top);
+        int line = top * imageWidth;
+        int row = firstRow + viewRow;
+        if(row >= frame.getDepth()) {
+            Arrays.fill(pixels, line, line + lines * imageWidth, gridColor);
+            return;
+        }
+        // The grid lines are left out when a cell is a single pixel.
+        int cellLines = cellHeight > 1 ? cellHeight - 1 : 1;
+        int background = frame.getRowColors()[row];
+        for(int x = 0, col = firstCol; x < imageWidth; x += cellWidth, col++) {
+            int color = col < frame.getWidth() ? colorOf(frame, row, col, background) : gridColor;
+            fillCellLine(line, x, imageWidth, color);
+        }
+        for(int y = 1; y < Math.min(cellLines, lines); y++) {
+            System.arraycopy(pixels, line, pixels, line + y * imageWidth, imageWidth);
+        }
+        if(cellLines < lines) {
+            int gridLine = line + cellLines * imageWidth;
+            Arrays.fill(pixels, gridLine, gridLine + imageWidth, gridColor);
+        }
+    }
+
+    /**
+     * Draw one line of pixels, zoomed out.
+     * @param y The line of pixels.
+     */
+    private void renderPixelLine(FrameSnapshot frame, int y)
+    {
+        int imageWidth = image.getWidth();
+        int line = y * imageWidth;
+        int row = firstRow + y * cellsPerPixel;
+        if(row >= frame.getDepth()) {
+            Arrays.fill(pixels, line, line + imageWidth, gridColor);
+            return;
+        }
+        int background = frame.getRowColors()[row];
+        int blockRow = row / Field.BLOCK_SIZE;
+        for(int x = 0; x < imageWidth; x++) {
+            int col = firstCol + x * cellsPerPixel;
+            int color;
+            if(col >= frame.getWidth()) {
+                color = gridColor;
+            }
+            else if(cellsPerPixel < Field.BLOCK_SIZE) {
+                color = colorOf(frame, row, col, background);
+            }
+            else {
+                int blockCol = col / Field.BLOCK_SIZE;
+                byte dominant = frame.getBlockDominant(blockRow, blockCol);
+                color = dominant == Species.EMPTY ? background
+                        : blend(palette[dominant], background,
+                                frame.getBlockOccupied(blockRow, blockCol), frame.cellsInBlock(blockRow, blockCol));
+            }
+            pixels[line + x] = color;
+        }
+    }
+
+    /**
+     * Draw the rows whose background changed, and in the other rows the
+     * cells in view that changed, one by one. Only used zoomed in.
+     * @return The part of the image drawn, or null if nothing changed.
+     */
+    private Rectangle renderChanges(FrameSnapshot frame, boolean backgroundChanged)
+    {
+        int[] rowBackgrounds = frame.getRowColors();
+        int imageWidth = image.getWidth();
+        int imageHeight = image.getHeight();
+        int lastRow = Math.min(frame.getDepth(), firstRow + (imageHeight + cellHeight - 1) / cellHeight);
+        int lastCol = Math.min(frame.getWidth(), firstCol + (imageWidth + cellWidth - 1) / cellWidth);
+        int cellLines = cellHeight > 1 ? cellHeight - 1 : 1;
+        int top = Integer.MAX_VALUE, bottom = -1, left = Integer.MAX_VALUE, right = -1;
+        for(int row = firstRow; row < lastRow; row++) {
+            if(backgroundChanged && rowBackgrounds[row] != drawnBackgrounds[row]) {
+                renderCellRow(frame, row - firstRow);
+                top = Math.min(top, row);
+                bottom = row;
+                left = firstCol;
+                right = lastCol - 1;
+                continue;
+            }
+            int y = (row - firstRow) * cellHeight;
+            int lines = Math.min(cellLines, imageHeight - y);
+            for(int word = firstCol & ~63; word < lastCol; word += 64) {
+                long changed = frame.getChangedBits(row, word);
+                // Leave out the columns out of view.
+                if(word < firstCol) {
+                    changed &= -1L << (firstCol - word);
+                }
+                if(lastCol - word < 64) {
+                    changed &= (1L << (lastCol - word)) - 1;
+                }
+                if(changed == 0) {
+                    continue;
+                }
+                top = Math.min(top, row);
+                bottom = row;
+                left = Math.min(left, word + Long.numberOfTrailingZeros(changed));
+                right = Math.max(right, word + 63 - Long.numberOfLeadingZeros(changed));
+                while(changed != 0) {
+                    int col = word + Long.numberOfTrailingZeros(changed);
+                    changed &= changed - 1;
+                    int color = colorOf(frame, row, col, rowBackgrounds[row]);
+                    int line = y * imageWidth;
+                    for(int i = 0; i < lines; i++) {
+                        fillCellLine(line, (col - firstCol) * cellWidth, imageWidth, color);
+                        line += imageWidth;
+                    }
+                }
+            }
+        }
+        System.arraycopy(rowBackgrounds, 0, drawnBackgrounds, 0, rowBackgrounds.length);
+        if(bottom < 0) {
+            return null;
+        }
+        Rectangle changed = new Rectangle((left - firstCol) * cellWidth, (top - firstRow) * cellHeight,
+                                          (right - left + 1) * cellWidth, (bottom - top + 1) * cellHeight);
+        return changed.intersection(new Rectangle(0, 0, imageWidth, imageHeight));
+    }
+
+    /**
+     * Fill the pixels of one line of a cell, and the grid pixel after them, cut at the edge of the image.
+     */
+    private void fillCellLine(int line, int x, int imageWidth, int color)
+    {
+        int cellPixels = cellWidth > 1 ? cellWidth - 1 : 1;
+        int end = Math.min(x + cellPixels, imageWidth);
+        Arrays.fill(pixels, line + x, line + end, color);
+        if(cellPixels < cellWidth && end < imageWidth) {
+            pixels[line + end] = gridColor;
+        }
+    }
+
+    /**
+     * Return the colour of a cell.
+     */
+    private int colorOf(FrameSnapshot frame, int row, int col, int background)
+    {
+        byte id = frame.getSpeciesAt(row, col);
+        return id == Species.EMPTY ? background : palette[id];
+    }
+
+    /**
+     * Mix a colour into the background: all of it when every cell is
+     * occupied, none of it when none is.
+     */
+    private static int blend(int color, int background, int occupied, int cells)
+    {
+        int r = mix((color >> 16) & 0xFF, (background >> 16) & 0xFF, occupied, cells);
+        int g = mix((color >> 8) & 0xFF, (background >> 8) & 0xFF, occupied, cells);
+        int b = mix(color & 0xFF, background & 0xFF, occupied, cells);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Mix one part of two colours.
+     */
+    private static int mix(int color, int background, int occupied, int cells)
+    {
+        return background + (color - background) * occupied / cells;
+    }
+
+    /**
+     * The drawing of a range of rows or lines, split between threads.
+     */
+    private class RowRendering extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final FrameSnapshot frame;
+        private final int from;
+        private final int to;
+
+        RowRendering(FrameSnapshot frame, int from, int to)
+        {
+            this.frame = frame;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute()
+        {
+            if(to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowRendering(frame, from, middle), new RowRendering(frame, middle, to));
+                return;
+            }
+            renderLines(frame, from, to);
+        }
+    }
+}
@@ -1,4 +1,3 @@
-import java.awt.Color;
 import java.util.HashMap;
 import java.util.Map;
 /**
@@ -6,6 +5,11 @@ import java.util.Map;
  * of a field. It is flexible: it will create and maintain a counter 
  * for any class of object that is found within the field.
  * 
+ * The counts are not made by looking at every cell: the field keeps the
+ * population of every species up to date as occupants are placed and
+ * cleared (see Field.getPopulation()), so counting only reads one number
+ * per species.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -107,20 +111,25 @@ public class FieldStats
     
     /**
      * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * They are read from the populations the field keeps, one species
+     * at a time. A counter is made for a species once it is first seen.
      * @param field The field to generate the stats for.
      */
     private void generateCounts(Field field)
     {
-        reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
+        for(byte id = 0; id < Species.COUNT; id++) {
+            Class occupantClass = Species.classOf(id);
+            if(occupantClass == null) {
+                continue;
+            }
+            int population = field.getPopulation(id);
+            Counter count = counters.get(occupantClass);
+            if(count == null && population > 0) {
+                count = new Counter(occupantClass.getName());
+                counters.put(occupantClass, count);
+            }
+            if(count != null) {
+                count.setCount(population);
             }
         }
         countsValid = true;
@@ -0,0 +1,123 @@
+/**
+ * Hands the frames of a simulation over from the thread running it to
+ * the thread drawing it, without either waiting for the other.
+ *
+ * The buffer follows a simulator as a listener and copies the field into
+ * a FrameSnapshot at the end of every step. It keeps three snapshots: the
+ * one being written, the latest one ready to be drawn and the one being
+ * drawn. Publishing swaps the first two, taking swaps the last two, so
+ * the simulation goes on at its own speed and whoever draws always gets
+ * the newest frame. A frame that is replaced before it was taken is
+ * dropped; its changed cells are added to the frame that replaces it, so
+ * that drawing only the changes stays right.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class FrameBuffer implements SimulatorListener
+{
+    // The snapshot being written, the latest one published and the one being drawn.
+    private FrameSnapshot writing;
+    private FrameSnapshot ready;
+    private FrameSnapshot showing;
+    // Whether the published snapshot has not been taken yet.
+    private boolean readyIsNew;
+    // The field of the last snapshot published.
+    private Field publishedField;
+    // How many frames were published, and how many of them were never taken.
+    private long publishedFrames;
+    private long droppedFrames;
+    // Lets one thread write a snapshot at a time.
+    private final Object publishing;
+
+    /**
+     * Create an empty buffer.
+     */
+    public FrameBuffer()
+    {
+        writing = new FrameSnapshot();
+        ready = new FrameSnapshot();
+        showing = new FrameSnapshot();
+        readyIsNew = false;
+        publishing = new Object();
+    }
+
+    /**
+     * Implements SimulatorListener: publish the starting state.
+     * @param simulator The simulator.
+     * @param field The new field.
+     */
+    public void simulationReset(Simulator simulator, Field field)
+    {
+        publish(simulator, field);
+    }
+
+    /**
+     * Implements SimulatorListener: publish the state the step left.
+     * @param simulator The simulator.
+     * @param step The number of the step.
+     * @param field The field.
+     */
+    public void stepCompleted(Simulator simulator, int step, Field field)
+    {
+        publish(simulator, field);
+    }
+
+    /**
+     * Copy the state of a simulation into a snapshot and make it the
+     * latest frame.
+     * @param simulator The simulator.
+     * @param field Its field.
+     */
+    public void publish(Simulator simulator, Field field)
+    {
+        synchronized(publishing) {
+            writing.capture(simulator, field, field != publishedField);
+            publishedField = field;
+            synchronized(this) {
+                if(readyIsNew) {
+                    writing.addChanges(ready);
+                    droppedFrames++;
+                }
+                FrameSnapshot published = writing;
+                writing = ready;
+                ready = published;
+                readyIsNew = true;
+                publishedFrames++;
+            }
+        }
+    }
+
+    /**
+     * Take the latest frame, if there is one that was not taken yet. The
+     * snapshot stays the taker's until the next call.
+     * @return The snapshot, or null if no new frame was published.
+     */
+    public synchronized FrameSnapshot takeLatest()
+    {
+        if(!readyIsNew) {
+            return null;
+        }
+        FrameSnapshot taken = ready;
+        ready = showing;
+        showing = taken;
+        readyIsNew = false;
+        return taken;
+    }
+
+    /**
+     * @return How many frames were published.
+     */
+    public synchronized long getPublishedFrames()
+    {
+        return publishedFrames;
+    }
+
+    /**
+     * @return How many frames were replaced by newer ones before they were taken.
+     */
+    public synchronized long getDroppedFrames()
+    {
+        return droppedFrames;
+    }
+}
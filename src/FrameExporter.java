@@ -0,0 +1,241 @@
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Writes pictures of a simulation to PNG files, every given number of
+ * steps, without a display.
+ *
+ * The exporter follows a simulator as a listener. On the thread running
+ * the simulation it only copies the species ids of the field into a
+ * FrameSnapshot; the snapshots are drawn by a FieldRenderer and encoded
+ * on a pool of worker threads of their own. There is a fixed number of
+ * snapshots, one for every worker and every frame allowed to wait in
+ * line. When they are all in use the frame is dropped and counted, so
+ * the simulation never waits for the encoding.
+ *
+ * The files are named after the run and the step, such as
+ * "run01-step000350.png"; every reset of the simulation starts a new run.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class FrameExporter implements SimulatorListener
+{
+    // The directory the files are written to.
+    private final File directory;
+    // Every how many steps a frame is exported.
+    private final int interval;
+    // The size of a cell in pixels.
+    private final int scale;
+    // The threads drawing and encoding the frames.
+    private final ExecutorService workers;
+    // The snapshots not in use; a frame is dropped when there is none.
+    private final BlockingQueue<FrameSnapshot> freeSnapshots;
+    // The renderer of each worker thread.
+    private final ThreadLocal<FieldRenderer> renderers;
+    // The number of the run, one more at every reset.
+    private int run;
+    // How many frames were written, dropped, or could not be written.
+    private final AtomicLong exportedFrames;
+    private final AtomicLong droppedFrames;
+    private final AtomicLong failedFrames;
+    // The first error writing a file, reported by close().
+    private volatile IOException failure;
+
+    /**
+     * Run a simulation without a display and write a picture of it every
+     * given number of steps.
+     * @param args - the directory to write to ("frames" if not given), the
+     *               number of steps (1000), every how many steps a frame is
+     *               written (10), the size of a cell in pixels (4), the
+     *               depth (120) and width (200) of the field.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        File directory = new File(args.length > 0 ? args[0] : "frames");
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int interval = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int scale = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : 120;
+        int width = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+
+        Simulator simulator = new Simulator(depth, width);
+        FrameExporter exporter = new FrameExporter(directory, interval, scale,
+                                                   Runtime.getRuntime().availableProcessors(), 4);
+        simulator.addListener(exporter);
+        // The simulator has already made its first run.
+        exporter.simulationReset(simulator, simulator.getField());
+        simulator.simulate(steps);
+        exporter.close();
+        System.out.println("Frames written: " + exporter.getExportedFrames()
+                           + ", dropped: " + exporter.getDroppedFrames());
+    }
+
+    /**
+     * Create an exporter; add it to a simulator with addListener().
+     * @param directory The directory to write to; it is made if missing.
+     * @param interval Every how many steps a frame is written.
+     * @param scale The size of a cell in pixels.
+     * @param workers How many frames are drawn and encoded at the same time.
+     * @param queueLength How many more frames may wait for a worker before frames are dropped.
+     * @throws IOException If the directory cannot be made.
+     */
+    public FrameExporter(File directory, int interval, int scale, int workers, int queueLength)
+        throws IOException
+    {
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot make the directory " + directory + ".");
+        }
+        this.directory = directory;
+        this.interval = Math.max(interval, 1);
+        this.scale = Math.max(scale, 1);
+        workers = Math.max(workers, 1);
+        this.workers = Executors.newFixedThreadPool(workers);
+        int snapshots = workers + Math.max(queueLength, 0);
+        freeSnapshots = new ArrayBlockingQueue<>(snapshots);
+        for(int i = 0; i < snapshots; i++) {
+            freeSnapshots.add(new FrameSnapshot());
+        }
+        renderers = ThreadLocal.withInitial(FrameExporter::newRenderer);
+        run = 0;
+        exportedFrames = new AtomicLong();
+        droppedFrames = new AtomicLong();
+        failedFrames = new AtomicLong();
+    }
+
+    /**
+     * Implements SimulatorListener: a new run starts, and its first frame is written.
+     * @param simulator The simulator.
+     * @param field The new field.
+     */
+    public void simulationReset(Simulator simulator, Field field)
+    {
+        run++;
+        export(simulator, field);
+    }
+
+    /**
+     * Implements SimulatorListener: write a frame if the step is one of every interval.
+     * @param simulator The simulator.
+     * @param step The number of the step.
+     * @param field The field.
+     */
+    public void stepCompleted(Simulator simulator, int step, Field field)
+    {
+        if(step % interval == 0) {
+            export(simulator, field);
+        }
+    }
+
+    /**
+     * Copy the field into a snapshot and hand it to a worker to be
+     * written; drop it if every snapshot is in use.
+     * @param simulator The simulator.
+     * @param field Its field.
+     */
+    public void export(Simulator simulator, Field field)
+    {
+        FrameSnapshot frame = freeSnapshots.poll();
+        if(frame == null) {
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        frame.capture(simulator, field, true);
+        File file = new File(directory,
+                             String.format(Locale.ROOT, "run%02d-step%06d.png", run, frame.getStep()));
+        workers.execute(() -> write(frame, file));
+    }
+
+    /**
+     * Draw a snapshot and encode it into a file, then give the snapshot back.
+     */
+    private void write(FrameSnapshot frame, File file)
+    {
+        try {
+            ImageIO.write(renderers.get().render(frame, scale, scale), "png", file);
+            exportedFrames.incrementAndGet();
+        }
+        catch(IOException e) {
+            failedFrames.incrementAndGet();
+            if(failure == null) {
+                failure = e;
+            }
+        }
+        finally {
+            freeSnapshots.add(frame);
+        }
+    }
+
+    /**
+     * Wait for the frames handed over to be written, and stop the workers.
+     * @throws IOException If a frame could not be written.
+     */
+    public void close() throws IOException
+    {
+        workers.shutdown();
+        try {
+            while(!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // still writing
+            }
+        }
+        catch(InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if(failure != null) {
+            throw new IOException(failedFrames.get() + " frames could not be written.", failure);
+        }
+    }
+
+    /**
+     * @return How many frames were written.
+     */
+    public long getExportedFrames()
+    {
+        return exportedFrames.get();
+    }
+
+    /**
+     * @return How many frames were dropped because the workers were behind.
+     */
+    public long getDroppedFrames()
+    {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return How many frames could not be written.
+     */
+    public long getFailedFrames()
+    {
+        return failedFrames.get();
+    }
+
+    /**
+     * Make a renderer with the colours the window uses.
+     */
+    private static FieldRenderer newRenderer()
+    {
+        FieldRenderer renderer = new FieldRenderer(Color.gray, Color.lightGray);
+        renderer.setColor(Species.SEAGULL, Seagull.getClassColor());
+        renderer.setColor(Species.SHARK, Shark.getClassColor());
+        renderer.setColor(Species.KILLER_WHALE, KillerWhale.getClassColor());
+        renderer.setColor(Species.COD, Cod.getClassColor());
+        renderer.setColor(Species.MACKEREL, Mackerel.getClassColor());
+        renderer.setColor(Species.ANCHOVY, Anchovy.getClassColor());
+        renderer.setColor(Species.ALGAE, Algae.getClassColor());
+        renderer.setColor(Species.PLANKTON, Plankton.getClassColor());
+        renderer.setColor(Species.ROCK, Rock.getClassColor());
+        renderer.setColor(Species.SOIL, Soil.getClassColor());
+        return renderer;
+    }
+}
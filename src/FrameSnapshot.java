@@ -0,0 +1,276 @@
+/**
+ * A copy of what a view shows of a simulation at the end of one step: the
+ * species id of every cell, one byte each, the colours of the background,
+ * the populations and the time and weather. It is made on the thread
+ * running the simulation and drawn on another (see FrameBuffer), so it
+ * holds nothing the simulation goes on to change.
+ *
+ * For views that show many cells per pixel, it also holds for every
+ * block of cells (see Field.BLOCK_SIZE) its dominant species and how
+ * many of its cells are occupied.
+ *
+ * A snapshot also knows which cells changed since the snapshot published
+ * before it that was drawn, so that only those need to be drawn again,
+ * and whether it shows a new field, which has to be drawn in full.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class FrameSnapshot
+{
+    // The size of the field.
+    private int depth, width;
+    // How many longs a row of the changed cells takes.
+    private int wordsPerRow;
+    // The species id of every cell, row after row.
+    private byte[] species;
+    // One bit per cell: has it changed since the last snapshot drawn.
+    private long[] changedBits;
+    // How many blocks there are across the field.
+    private int blocksAcross;
+    // The species holding the most cells of each block, and how many cells are occupied.
+    private byte[] blockDominant;
+    private byte[] blockOccupied;
+    // Whether the snapshot shows a different field from the last one drawn.
+    private boolean newField;
+    // The colours of the empty cells of each row, and the version of the background they come from.
+    private int[] rowColors;
+    private int backgroundVersion;
+    // How many cells each species holds, by species id.
+    private final int[] populations;
+    // The step, weather and time of day.
+    private int step;
+    private int weather;
+    private String time;
+    private int day;
+    private int partOfDay;
+
+    /**
+     * Create an empty snapshot; its size is set by the first capture().
+     */
+    public FrameSnapshot()
+    {
+        species = new byte[0];
+        changedBits = new long[0];
+        blockDominant = new byte[0];
+        blockOccupied = new byte[0];
+        rowColors = new int[0];
+        populations = new int[Species.COUNT];
+    }
+
+    /**
+     * Copy the state of a simulation into this snapshot.
+     * @param simulator The simulator.
+     * @param field Its field.
+     * @param newField Whether the field is not the one of the last snapshot.
+     */
+    public void capture(Simulator simulator, Field field, boolean newField)
+    {
+        if(field.getDepth() != depth || field.getWidth() != width) {
+            depth = field.getDepth();
+            width = field.getWidth();
+            wordsPerRow = (width + 63) >>> 6;
+            species = new byte[depth * width];
+            changedBits = new long[depth * wordsPerRow];
+            rowColors = new int[depth];
+            blocksAcross = (width + Field.BLOCK_SIZE - 1) / Field.BLOCK_SIZE;
+            int blocks = (depth + Field.BLOCK_SIZE - 1) / Field.BLOCK_SIZE * blocksAcross;
+            blockDominant = new byte[blocks];
+            blockOccupied = new byte[blocks];
+        }
+        for(int row = 0; row < depth; row++) {
+            field.copySpeciesRow(row, species, row * width);
+            for(int word = 0; word < wordsPerRow; word++) {
+                changedBits[row * wordsPerRow + word] = field.getChangedBits(row, word << 6, 64);
+            }
+        }
+        for(int block = 0; block < blockDominant.length; block++) {
+            int blockRow = block / blocksAcross;
+            int blockCol = block - blockRow * blocksAcross;
+            blockDominant[block] = field.getDominantSpecies(blockRow, blockCol);
+            blockOccupied[block] = (byte) (cellsInBlock(blockRow, blockCol)
+                                           - field.getBlockCount(blockRow, blockCol, Species.EMPTY));
+        }
+        this.newField = newField;
+
+        BackgroundPalette background = simulator.getBackgroundPalette();
+        System.arraycopy(background.getRowColors(), 0, rowColors, 0, depth);
+        backgroundVersion = background.getVersion();
+
+        for(byte id = 0; id < Species.COUNT; id++) {
+            populations[id] = field.getPopulation(id);
+        }
+        step = simulator.getStep();
+        weather = simulator.getCurrentWeather();
+        DayNightCycle cycle = simulator.getDayNightCycle();
+        time = cycle.getCurrentTimeString();
+        day = cycle.getCurrentDay();
+        partOfDay = cycle.getPartOfDay();
+    }
+
+    /**
+     * Add the changes of an older snapshot, which will not be drawn, to
+     * those of this one.
+     * @param older The snapshot published before this one.
+     */
+    public void addChanges(FrameSnapshot older)
+    {
+        if(older.depth != depth || older.width != width) {
+            newField = true;
+            return;
+        }
+        for(int word = 0; word < changedBits.length; word++) {
+            changedBits[word] |= older.changedBits[word];
+        }
+        newField |= older.newField;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Return the species in a cell.
+     * @param row The row.
+     * @param col The column.
+     * @return The species id.
+     */
+    public byte getSpeciesAt(int row, int col)
+    {
+        return species[row * width + col];
+    }
+
+    /**
+     * Return which of 64 cells of a row changed since the last snapshot
+     * drawn: bit i stands for column col + i.
+     * @param row The row.
+     * @param col The first column, a multiple of 64.
+     * @return The bits.
+     */
+    public long getChangedBits(int row, int col)
+    {
+        return changedBits[row * wordsPerRow + (col >>> 6)];
+    }
+
+    /**
+     * Return the species that held the most cells of a block, other than empty cells.
+     * @param blockRow The row of the block: the row of a cell divided by Field.BLOCK_SIZE.
+     * @param blockCol The column of the block.
+     * @return The species id, or Species.EMPTY if the block was empty.
+     */
+    public byte getBlockDominant(int blockRow, int blockCol)
+    {
+        return blockDominant[blockRow * blocksAcross + blockCol];
+    }
+
+    /**
+     * Return how many cells of a block were occupied.
+     * @param blockRow The row of the block.
+     * @param blockCol The column of the block.
+     * @return The number of cells.
+     */
+    public int getBlockOccupied(int blockRow, int blockCol)
+    {
+        return blockOccupied[blockRow * blocksAcross + blockCol];
+    }
+
+    /**
+     * Return how many cells a block has; the blocks at the bottom and
+     * right edges of the field may be cut short.
+     * @param blockRow The row of the block.
+     * @param blockCol The column of the block.
+     * @return The number of cells.
+     */
+    public int cellsInBlock(int blockRow, int blockCol)
+    {
+        int rows = Math.min(Field.BLOCK_SIZE, depth - blockRow * Field.BLOCK_SIZE);
+        int cols = Math.min(Field.BLOCK_SIZE, width - blockCol * Field.BLOCK_SIZE);
+        return rows * cols;
+    }
+
+    /**
+     * @return true if the snapshot shows another field than the last one drawn.
+     */
+    public boolean isNewField()
+    {
+        return newField;
+    }
+
+    /**
+     * @return The colours of the empty cells of each row, as ARGB.
+     */
+    public int[] getRowColors()
+    {
+        return rowColors;
+    }
+
+    /**
+     * @return The version of the background the row colours come from.
+     */
+    public int getBackgroundVersion()
+    {
+        return backgroundVersion;
+    }
+
+    /**
+     * Return how many cells a species held.
+     * @param id The species id.
+     * @return The number of cells.
+     */
+    public int getPopulation(byte id)
+    {
+        return populations[id];
+    }
+
+    /**
+     * @return The step the snapshot was taken at.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The weather, one of the Weather constants.
+     */
+    public int getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return The time of day, as DayNightCycle.getCurrentTimeString() gives it.
+     */
+    public String getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return The number of the day.
+     */
+    public int getDay()
+    {
+        return day;
+    }
+
+    /**
+     * @return DayNightCycle.DAY or DayNightCycle.NIGHT.
+     */
+    public int getPartOfDay()
+    {
+        return partOfDay;
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.Arrays;
+
+/**
+ * The search a predator runs to find its prey, as an iterative
+ * breadth first search that reuses its memory from one hunt to the next.
+ *
+ * A predator expands at most getMaxHuntingRange() cells, so everything the
+ * search can reach lies inside a (2 * range + 1) square window centred on
+ * the predator. The distances are kept in an array the size of that window
+ * rather than of the whole field, and the queue is a ring buffer of cell
+ * indices. Each window cell carries the number of the search that last
+ * wrote it, so nothing has to be cleared between searches.
+ *
+ * The search visits the cells in the same order as the old recursive
+ * Predator.hunt and picks the same step towards the same prey.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class HuntingEngine
+{
+    // Returned by search() when no prey is within range.
+    public static final int NONE = -1;
+
+    // The distances (predator = 1) and blocked cells (-1) of the window.
+    private int[] marks;
+    // The search that wrote each window cell.
+    private int[] stamps;
+    // The number of the current search.
+    private int stamp;
+    // The queue of field cells to expand, with their window cells.
+    private int[] queueCells;
+    private int[] queueWindow;
+    // queue capacity - 1, the capacity being a power of two.
+    private int queueMask;
+    // The radius and the side of the window.
+    private int radius;
+    private int side;
+    // What to add to a window cell to reach its neighbour in each direction.
+    private final int[] windowOffsets;
+    // The prey found by the last search.
+    private Prey prey;
+    // The cells from the predator's neighbour to the prey found by the last search.
+    private int[] path;
+    private int pathLength;
+
+    /**
+     * Create an engine. Its buffers grow to fit the largest range asked for.
+     */
+    public HuntingEngine()
+    {
+        windowOffsets = new int[Field.NEIGHBOURS];
+        radius = -1;
+        path = new int[1];
+    }
+
+    /**
+     * Look for the nearest prey of a predator.
+     * First the eight neighbours of the predator are checked, then the
+     * search widens one expanded cell at a time until range cells have
+     * been expanded.
+     * @param predator The predator hunting.
+     * @param field The field it hunts in.
+     * @param start The cell of the predator.
+     * @param range How many cells the search may expand.
+     * @return The cell next to the predator on the way to the prey,
+     *         or NONE if no prey was found. See getPrey().
+     */
+    public int search(Predator predator, Field field, int start, int range)
+    {
+        prey = null;
+        pathLength = 0;
+        if(range <= 0) {
+            return NONE;
+        }
+        // Most prey are caught next to the predator - no need for the window.
+        int order = field.randomNeighbourOrder();
+        for(int k = 0; k < Field.NEIGHBOURS; k++) {
+            int next = field.neighbour(start, order, k);
+            Object obj = field.getObjectAt(next);
+            if(obj instanceof Prey && ((Prey) obj).isAlive()
+               && predator.isInHabitat(field.locationOf(next))) {
+                prey = (Prey) obj;
+                path[0] = next;
+                pathLength = 1;
+                return next;
+            }
+        }
+
+        prepare(range);
+        int centre = radius * side + radius;
+        mark(centre, 1);
+        int head = 0;
+        int tail = 0;
+        queueCells[tail] = start;
+        queueWindow[tail] = centre;
+        tail = (tail + 1) & queueMask;
+        for(int expanded = 0; expanded < range && head != tail; expanded++) {
+            int cell = queueCells[head];
+            int window = queueWindow[head];
+            head = (head + 1) & queueMask;
+            int distance = marks[window] + 1;
+            // The first expansion is the one the neighbours were checked in.
+            if(expanded > 0) {
+                order = field.randomNeighbourOrder();
+            }
+            for(int k = 0; k < Field.NEIGHBOURS; k++) {
+                int next = field.neighbour(cell, order, k);
+                int nextWindow = window + windowOffsets[field.neighbourDirection(order, k)];
+                if(field.isInside(next) && stamps[nextWindow] != stamp
+                   && predator.isInHabitat(field.locationOf(next))) {
+                    Object obj = field.getObjectAt(next);
+                    if(obj == null) {
+                        mark(nextWindow, distance);
+                        queueCells[tail] = next;
+                        queueWindow[tail] = nextWindow;
+                        tail = (tail + 1) & queueMask;
+                    }
+                    else if(obj instanceof Prey) {
+                        mark(nextWindow, distance);
+                        if(((Prey) obj).isAlive()) {
+                            prey = (Prey) obj;
+                            return firstStep(field, start, nextWindow);
+                        }
+                        queueCells[tail] = next;
+                        queueWindow[tail] = nextWindow;
+                        tail = (tail + 1) & queueMask;
+                    }
+                    else {
+                        mark(nextWindow, -1);
+                    }
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return The prey found by the last search, or null.
+     */
+    public Prey getPrey()
+    {
+        return prey;
+    }
+
+    /**
+     * Copy the path found by the last search into an array.
+     * @param into The array, with room for at least range cells.
+     * @return How many cells the path has - the first is next to the
+     *         predator, the last is the prey. 0 if no prey was found.
+     */
+    public int getPath(int[] into)
+    {
+        System.arraycopy(path, 0, into, 0, pathLength);
+        return pathLength;
+    }
+
+    /**
+     * Walk back from the prey towards the predator, always stepping to a
+     * cell one closer, until reaching a cell next to the predator.
+     * The directions are tried in the same fixed order as before.
+     * The cells walked through are kept as the path of the search.
+     * @param field The field.
+     * @param start The cell of the predator.
+     * @param window The window cell of the prey.
+     * @return The field cell next to the predator on the way.
+     */
+    private int firstStep(Field field, int start, int window)
+    {
+        int top = field.rowOf(start) - radius;
+        int left = field.colOf(start) - radius;
+        int row = window / side;
+        int col = window % side;
+        int val = marks[window];
+        pathLength = val - 1;
+        path[val - 2] = field.indexOf(top + row, left + col);
+        while(val > 2) {
+            if(markAt(row - 1, col) == val - 1) {
+                row--;
+            }
+            else if(markAt(row, col - 1) == val - 1) {
+                col--;
+            }
+            else if(markAt(row, col + 1) == val - 1) {
+                col++;
+            }
+            else if(markAt(row + 1, col) == val - 1) {
+                row++;
+            }
+            else if(markAt(row + 1, col + 1) == val - 1) {
+                row++;
+                col++;
+            }
+            else if(markAt(row + 1, col - 1) == val - 1) {
+                row++;
+                col--;
+            }
+            else if(markAt(row - 1, col + 1) == val - 1) {
+                row--;
+                col++;
+            }
+            else {
+                row--;
+                col--;
+            }
+            val--;
+            path[val - 2] = field.indexOf(top + row, left + col);
+        }
+        return path[0];
+    }
+
+    /**
+     * Return the mark of a window cell, 0 if it has none this search
+     * or lies outside the window.
+     */
+    private int markAt(int row, int col)
+    {
+        if(row < 0 || row >= side || col < 0 || col >= side) {
+            return 0;
+        }
+        int window = row * side + col;
+        return stamps[window] == stamp ? marks[window] : 0;
+    }
+
+    /**
+     * Mark a window cell for the current search.
+     */
+    private void mark(int window, int value)
+    {
+        marks[window] = value;
+        stamps[window] = stamp;
+    }
+
+    /**
+     * Start a new search, making the window big enough for the range.
+     */
+    private void prepare(int range)
+    {
+        if(range > radius) {
+            radius = range;
+            side = 2 * range + 1;
+            marks = new int[side * side];
+            stamps = new int[side * side];
+            int capacity = Integer.highestOneBit(side * side - 1) << 1;
+            queueCells = new int[capacity];
+            queueWindow = new int[capacity];
+            queueMask = capacity - 1;
+            path = new int[range + 1];
+            for(int direction = 0; direction < Field.NEIGHBOURS; direction++) {
+                windowOffsets[direction] = Field.directionRow(direction) * side
+                                           + Field.directionCol(direction);
+            }
+            stamp = 0;
+        }
+        stamp++;
+        if(stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+}
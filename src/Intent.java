@@ -0,0 +1,150 @@
+/**
+ * What an actor means to do in a step, worked out by Actor.plan() and
+ * carried out by Actor.commit(). Used by the two phase step, where every
+ * actor first plans against the field as it was at the start of the step
+ * and only then are the plans carried out, one actor at a time.
+ *
+ * Cells are given as field indices (see Field.indexOf()).
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class Intent
+{
+    // The value of a cell that has not been chosen.
+    public static final int NONE = -1;
+
+    // Whether the actor leaves the simulation this step.
+    private boolean dies;
+    // Whether the actor sits this step out, only getting older.
+    private boolean resting;
+    // The cell to move to.
+    private int move;
+    // The food to eat, and the cell it was in.
+    private Object food;
+    private int foodCell;
+    // The cells where young are born or new plants grow.
+    private final int[] births;
+    private int birthCount;
+
+    /**
+     * Create an empty intent.
+     */
+    public Intent()
+    {
+        births = new int[Field.NEIGHBOURS];
+        clear();
+    }
+
+    /**
+     * Forget the last plan.
+     */
+    public void clear()
+    {
+        dies = false;
+        resting = false;
+        move = NONE;
+        food = null;
+        foodCell = NONE;
+        birthCount = 0;
+    }
+
+    /**
+     * The actor will leave the simulation.
+     */
+    public void setDies()
+    {
+        dies = true;
+    }
+
+    /**
+     * @return true if the actor will leave the simulation.
+     */
+    public boolean dies()
+    {
+        return dies;
+    }
+
+    /**
+     * The actor will do nothing this step but get older.
+     */
+    public void setResting()
+    {
+        resting = true;
+    }
+
+    /**
+     * @return true if the actor will only get older this step.
+     */
+    public boolean isResting()
+    {
+        return resting;
+    }
+
+    /**
+     * @param cell The cell the actor will move to.
+     */
+    public void setMove(int cell)
+    {
+        move = cell;
+    }
+
+    /**
+     * @return The cell the actor will move to, or NONE.
+     */
+    public int getMove()
+    {
+        return move;
+    }
+
+    /**
+     * @param food What the actor will eat.
+     * @param cell The cell it is in.
+     */
+    public void setFood(Object food, int cell)
+    {
+        this.food = food;
+        foodCell = cell;
+    }
+
+    /**
+     * @return What the actor will eat, or null.
+     */
+    public Object getFood()
+    {
+        return food;
+    }
+
+    /**
+     * @return The cell of the food, or NONE.
+     */
+    public int getFoodCell()
+    {
+        return foodCell;
+    }
+
+    /**
+     * @return The array holding the cells of the births, with room for
+     *         a cell in every direction. See setBirthCount().
+     */
+    public int[] getBirths()
+    {
+        return births;
+    }
+
+    /**
+     * @param count How many cells of getBirths() are used.
+     */
+    public void setBirthCount(int count)
+    {
+        birthCount = count;
+    }
+
+    /**
+     * @return How many cells of getBirths() are used.
+     */
+    public int getBirthCount()
+    {
+        return birthCount;
+    }
+}
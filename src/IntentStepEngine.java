@@ -0,0 +1,132 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs one step of the simulation in two phases.
+ *
+ * First every actor plans what it will do (Actor.plan()) - where to move,
+ * what to eat, where its young are born - all at the same time on several
+ * threads. Nothing changes during this phase, so every plan is made
+ * against the field as it was at the end of the last step.
+ *
+ * Then the plans are carried out (Actor.commit()) one actor at a time, in
+ * the order of the arena. Clashes are settled by that order: when two
+ * predators go for the same prey, or two animals for the same free cell,
+ * the one that comes first in the arena gets it and the other does
+ * without.
+ *
+ * Every actor draws its random numbers while planning from its own stream,
+ * made from the seed of the run, the step and its place among the live
+ * actors, so the results do not depend on the number of threads.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class IntentStepEngine
+{
+    // How many actors a thread plans for at least.
+    private static final int CHUNK = 256;
+
+    // The threads the actors plan on.
+    private final ForkJoinPool pool;
+    // The live actors of the step and their plans, by place in the arena.
+    private Actor[] planners;
+    private Intent[] intents;
+
+    /**
+     * Create an engine.
+     * @param pool The threads to plan on.
+     */
+    public IntentStepEngine(ForkJoinPool pool)
+    {
+        this.pool = pool;
+        planners = new Actor[0];
+        intents = new Intent[0];
+    }
+
+    /**
+     * Let every live actor plan and then commit once. Dead actors are
+     * unlinked from the arena and the newborns are added after the last actor.
+     * @param actors All the actors, in their order.
+     * @param seed The seed of the run.
+     * @param step The number of the step.
+     */
+    public void step(ActorArena actors, long seed, int step)
+    {
+        int slots = actors.size();
+        if(planners.length < slots) {
+            int capacity = Math.max(slots, planners.length * 2);
+            planners = new Actor[capacity];
+            Intent[] grown = new Intent[capacity];
+            System.arraycopy(intents, 0, grown, 0, intents.length);
+            for(int i = intents.length; i < capacity; i++) {
+                grown[i] = new Intent();
+            }
+            intents = grown;
+        }
+        int count = 0;
+        for(int slot = 0; slot < slots; slot++) {
+            if(!actors.isLinked(slot)) {
+                continue;
+            }
+            Actor actor = actors.get(slot);
+            if(!ActorArena.isAlive(actor)) {
+                actors.unlink(slot);
+            }
+            else {
+                planners[count++] = actor;
+            }
+        }
+
+        pool.invoke(new Planning(0, count, seed, step));
+
+        for(int i = 0; i < count; i++) {
+            // It may have been eaten by an actor that committed before it.
+            if(ActorArena.isAlive(planners[i])) {
+                planners[i].commit(intents[i], actors.newborns());
+            }
+            planners[i] = null;
+        }
+    }
+
+    /**
+     * The planning of a range of the actors, split between threads.
+     */
+    private class Planning extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final long seed;
+        private final int step;
+
+        Planning(int from, int to, long seed, int step)
+        {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+            this.step = step;
+        }
+
+        protected void compute()
+        {
+            if(to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Planning(from, middle, seed, step), new Planning(middle, to, seed, step));
+                return;
+            }
+            SplittableRandom previous = Randomizer.bind(null);
+            try {
+                for(int i = from; i < to; i++) {
+                    intents[i].clear();
+                    Randomizer.bind(Randomizer.newStream(seed, step, i));
+                    planners[i].plan(intents[i]);
+                }
+            }
+            finally {
+                Randomizer.bind(previous);
+            }
+        }
+    }
+}
@@ -7,8 +7,8 @@
 public class Location
 {
     // Row and column positions.
-    private int row;
-    private int col;
+    private final int row;
+    private final int col;
 
     /**
      * Represent a row and column.
@@ -45,14 +45,14 @@ public class Location
     }
     
     /**
-     * Use the top 16 bits for the row value and the bottom for
-     * the column. Except for very big grids, this should give a
-     * unique hash code for each (row, col) pair.
+     * Mix the row and the column so that locations of grids of any
+     * width spread well. Shifting the row by 16 bits, as before, made
+     * every grid wider than 65536 columns collide.
      * @return A hashcode for the location.
      */
     public int hashCode()
     {
-        return (row << 16) + col;
+        return row * 0x9E3779B1 + col;
     }
     
     /**
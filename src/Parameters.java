@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ * Overrides of the constants the species are defined by, so that one
+ * program can run simulations with different settings side by side
+ * (see EnsembleRunner). Every Simulator has its own Parameters.
+ *
+ * The values are kept in a table indexed by species id (see Species) and
+ * parameter. A value that has not been set is NaN, which means the
+ * species uses its own constant.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class Parameters
+{
+    // The parameters that can be set.
+    // The chance of the species being placed in a free cell at the start.
+    public static final int CREATION_PROBABILITY = 0;
+    // The breeding constants of the animals.
+    public static final int BREEDING_AGE = 1;
+    public static final int BREEDING_PROBABILITY = 2;
+    public static final int MAX_SPAWN_SIZE = 3;
+    // How old an animal can get and how much food it can hold.
+    public static final int MAX_AGE = 4;
+    public static final int MAX_FOOD_LEVEL = 5;
+    // How far a predator looks for prey.
+    public static final int MAX_HUNTING_RANGE = 6;
+    // How much food a prey or a plant gives when eaten.
+    public static final int FOOD_VALUE = 7;
+    // The chance of a plant growing into a cell (for soil: of an algae growing from it).
+    public static final int GROWTH_PROBABILITY = 8;
+    // How many parameters there are.
+    public static final int COUNT = 9;
+
+    // The names of the parameters, as used in the output of the ensemble runner.
+    private static final String[] NAMES = {
+        "creation_probability", "breeding_age", "breeding_probability",
+        "max_spawn_size", "max_age", "max_food_level", "max_hunting_range",
+        "food_value", "growth_probability"
+    };
+
+    // The values set, NaN where a species keeps its own constant.
+    private final double[] values;
+
+    /**
+     * Create a set of parameters that overrides nothing.
+     */
+    public Parameters()
+    {
+        values = new double[Species.COUNT * COUNT];
+        Arrays.fill(values, Double.NaN);
+    }
+
+    /**
+     * Create a copy of another set of parameters.
+     * @param other The parameters to copy.
+     */
+    public Parameters(Parameters other)
+    {
+        values = other.values.clone();
+    }
+
+    /**
+     * Override a parameter of a species.
+     * @param species The species id.
+     * @param parameter The parameter.
+     * @param value The new value, or NaN to go back to the species' own constant.
+     * @return These parameters, so that several can be set in a row.
+     */
+    public Parameters set(byte species, int parameter, double value)
+    {
+        values[species * COUNT + parameter] = value;
+        return this;
+    }
+
+    /**
+     * Return the value of a parameter of a species.
+     * @param species The species id.
+     * @param parameter The parameter.
+     * @param defaultValue The species' own constant.
+     * @return The value set, or the default if none was.
+     */
+    public double get(byte species, int parameter, double defaultValue)
+    {
+        double value = values[species * COUNT + parameter];
+        return Double.isNaN(value) ? defaultValue : value;
+    }
+
+    /**
+     * Return the value of a whole number parameter of a species.
+     * @param species The species id.
+     * @param parameter The parameter.
+     * @param defaultValue The species' own constant.
+     * @return The value set, rounded, or the default if none was.
+     */
+    public int get(byte species, int parameter, int defaultValue)
+    {
+        double value = values[species * COUNT + parameter];
+        return Double.isNaN(value) ? defaultValue : (int) Math.round(value);
+    }
+
+    /**
+     * Return the name of a parameter.
+     * @param parameter The parameter.
+     * @return The name, in lower case with underscores.
+     */
+    public static String getName(int parameter)
+    {
+        return NAMES[parameter];
+    }
+
+    /**
+     * Read parameters from a description like the one toString() gives,
+     * such as "Shark.max_hunting_range=10,Cod.breeding_probability=0.5".
+     * @param text The description; "defaults" or an empty one sets nothing.
+     * @return The parameters.
+     * @throws IllegalArgumentException If a species, parameter or value is not known.
+     */
+    public static Parameters parse(String text)
+    {
+        Parameters parameters = new Parameters();
+        text = text.trim();
+        if(text.isEmpty() || text.equals("defaults")) {
+            return parameters;
+        }
+        for(String setting : text.split(",")) {
+            int dot = setting.indexOf('.');
+            int equals = setting.indexOf('=');
+            if(dot < 0 || equals < dot) {
+                throw new IllegalArgumentException("Not a setting: " + setting);
+            }
+            byte species = speciesNamed(setting.substring(0, dot).trim());
+            int parameter = parameterNamed(setting.substring(dot + 1, equals).trim());
+            try {
+                parameters.set(species, parameter, Double.parseDouble(setting.substring(equals + 1).trim()));
+            }
+            catch(NumberFormatException e) {
+                throw new IllegalArgumentException("Not a value: " + setting);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Return the id of the species with the given class name.
+     */
+    private static byte speciesNamed(String name)
+    {
+        for(byte species = 0; species < Species.COUNT; species++) {
+            Class<?> occupantClass = Species.classOf(species);
+            if(occupantClass != null && occupantClass.getSimpleName().equals(name)) {
+                return species;
+            }
+        }
+        throw new IllegalArgumentException("No such species: " + name);
+    }
+
+    /**
+     * Return the parameter with the given name.
+     */
+    private static int parameterNamed(String name)
+    {
+        for(int parameter = 0; parameter < COUNT; parameter++) {
+            if(NAMES[parameter].equals(name)) {
+                return parameter;
+            }
+        }
+        throw new IllegalArgumentException("No such parameter: " + name);
+    }
+
+    /**
+     * Return a short description of the values set, such as
+     * "Shark.max_hunting_range=10.0".
+     * @return The description, "defaults" if nothing is set.
+     */
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        for(byte species = 0; species < Species.COUNT; species++) {
+            for(int parameter = 0; parameter < COUNT; parameter++) {
+                double value = values[species * COUNT + parameter];
+                if(!Double.isNaN(value)) {
+                    if(text.length() > 0) {
+                        text.append(',');
+                    }
+                    text.append(Species.classOf(species).getSimpleName()).append('.')
+                        .append(NAMES[parameter]).append('=').append(value);
+                }
+            }
+        }
+        return text.length() > 0 ? text.toString() : "defaults";
+    }
+}
@@ -1,6 +1,4 @@
-import java.util.List;
 import java.awt.Color;
-import java.util.Random;
 /**
  * This is the Plankton specific class
  * Plankton can grow diversely and randomly.
@@ -16,8 +14,6 @@ public class Plankton extends Plant
     private static final int FOOD_VALUE = 65;
     // The chance of spawning/growing.
     private static final double SPAWN_PLANKTON_CHANCE = 0.0003;
-
-    private static final Random rand = Randomizer.getRandom();
     // It can go up until this threshhold
     private static final int MIN_HABITAT_HEIGHT = 5;
 
@@ -37,18 +33,62 @@ public class Plankton extends Plant
      * Plants can grow and thus they 'produce' another plants.
      * In particular Plankton can grow in all directions..
      * 
-     * @param newPlants List<Plant> the new plants that grow from this one.
+     * @param cells int[] - where to put the cells the new plants grow in.
+     * @return int - how many cells were chosen.
+     */
+    protected int chooseGrowthCells(int[] cells) {
+        Field field = super.getField();
+        int here = field.indexOf(super.getLocation());
+        return chooseGrowthCells(field, here, parameter(Parameters.GROWTH_PROBABILITY, SPAWN_PLANKTON_CHANCE),
+                                 super.getSim(), cells);
+    }
+
+    /**
+     * Chooses the cells plankton in the given cell grows into: each free neighbouring cell
+     * in habitat, with the given chance. The chances are taken through the SpawnScheduler
+     * of the thread, so the neighbours are only visited, in a random order, when one of
+     * them is grown into. This is also used for the plankton of a plant layer (see PlantLayer).
+     * 
+     * @param field Field - the field.
+     * @param here int - the cell of the plankton.
+     * @param chance double - the chance of growing into a free cell.
+     * @param sim Simulator - the simulator reference.
+     * @param cells int[] - where to put the cells, with room for every neighbour.
+     * @return int - how many cells were chosen.
      */
-    protected void grow(List<Plant> newPlants) {
-        List<Location> freeLocations = super.getField().getFreeAdjacentLocations(super.getLocation());
-        for(Location l : freeLocations) {
-            double rowDouble = (double) l.getRow();
-            if (rand.nextDouble() <= SPAWN_PLANKTON_CHANCE) {
-                if(isInHabitat(l)) { // If it is in habitat ...
-                    newPlants.add(new Plankton(super.getField(),l, super.getSim()));  // then grow ...
+    public static int chooseGrowthCells(Field field, int here, double chance, Simulator sim, int[] cells) {
+        SpawnScheduler spawns = SpawnScheduler.forThread();
+        int free = field.countFreeNeighbours(here);
+        int success = spawns.nextSuccess(Species.PLANKTON, chance, free);
+        if (success < 0) { // None of the free neighbours is grown into.
+            return 0;
+        }
+        int order = field.randomNeighbourOrder();
+        int count = 0;
+        int seen = 0;
+        for(int k = 0; k < Field.NEIGHBOURS && success >= 0; k++) {
+            int next = field.neighbour(here, order, k);
+            if (field.isFree(next) && seen++ == success) {
+                if(isInHabitatStatic(field.locationOf(next), sim)) { // If it is in habitat ...
+                    cells[count++] = next;  // then grow ...
                 }
+                int later = spawns.nextSuccess(Species.PLANKTON, chance, free - seen);
+                success = later < 0 ? -1 : seen + later;
             }
         }
+        return count;
+    }
+
+    /**
+     * Abstract method implemented:
+     * Returns a new Plankton at the given location.
+     * 
+     * @param field - the current field.
+     * @param loc - the location of the new plant.
+     * @return Plant - the new Plankton.
+     */
+    protected Plant getNewPlant(Field field, Location loc) {
+        return new Plankton(field, loc, super.getSim());
     }
 
     /**
@@ -66,7 +106,29 @@ public class Plankton extends Plant
      * @return FOOD_VALUE - the food value of this plant.
      */
     public int getFoodValue() {
-        return FOOD_VALUE;
+        return parameter(Parameters.FOOD_VALUE, FOOD_VALUE);
+    }
+
+    /**
+     * The food value of the plankton in a simulation, for the plankton kept in a plant layer,
+     * which are no objects (see PlantLayer).
+     * 
+     * @param sim Simulator - the simulator reference.
+     * @return int - the food value.
+     */
+    public static int getFoodValue(Simulator sim) {
+        return sim.getParameters().get(Species.PLANKTON, Parameters.FOOD_VALUE, FOOD_VALUE);
+    }
+    
+    /**
+     * The chance of the plankton in a simulation growing into a free cell, for the plankton
+     * kept in a plant layer (see PlantLayer).
+     * 
+     * @param sim Simulator - the simulator reference.
+     * @return double - the chance.
+     */
+    public static double getGrowthChance(Simulator sim) {
+        return sim.getParameters().get(Species.PLANKTON, Parameters.GROWTH_PROBABILITY, SPAWN_PLANKTON_CHANCE);
     }
 
     /**
@@ -84,15 +84,78 @@ public abstract class Plant extends Actor
         }
     }
 
+    /**
+     * Implements Actor.plan():
+     * The plant works out where it will grow, without growing yet.
+     * @param intent - where to put the plan.
+     */
+    protected void plan(Intent intent) {
+        if(!isInHabitat(super.getLocation())) {
+            intent.setDies();
+            return;
+        }
+        DayNightCycle cycle = super.getSim().getDayNightCycle();
+        if(cycle.getPartOfDay() == DayNightCycle.DAY) {
+            intent.setBirthCount(chooseGrowthCells(intent.getBirths()));
+        }
+    }
+
+    /**
+     * Implements Actor.commit():
+     * The new plants grow in the cells planned that are still free.
+     * @param intent - the plan.
+     * @param newActors - the new plants to be displayed.
+     */
+    protected void commit(Intent intent, List<Actor> newActors) {
+        if(intent.dies()) {
+            setDead();
+            return;
+        }
+        Field field = super.getField();
+        int[] cells = intent.getBirths();
+        for(int i = 0; i < intent.getBirthCount(); i++) {
+            if(field.isFree(cells[i])) {
+                newActors.add(getNewPlant(field, field.locationOf(cells[i])));
+            }
+        }
+    }
+
+    /**
+     * Implements the growth of the plant: new plants in the cells chosen
+     * by chooseGrowthCells.
+     *
+     * @param newPlants - the new plants that will grow at the next step in simulation.
+     */
+    protected void grow(List<Plant> newPlants) {
+        Field field = super.getField();
+        int[] cells = new int[Field.NEIGHBOURS];
+        int count = chooseGrowthCells(cells);
+        for(int i = 0; i < count; i++) {
+            newPlants.add(getNewPlant(field, field.locationOf(cells[i])));
+        }
+    }
+
     /**
      * Abstract method:
      * 
-     * Implements the growth of the plant. As our plants have different behaviours
+     * Chooses the cells the plant grows into this step. As our plants have different behaviours
      * when it comes to growing this method is meant to be abstract.
      *
-     * @param newPlants - the new plants that will grow at the next step in simulation.
+     * @param cells - where to put the cells, with room for every neighbour.
+     * @return int - how many cells were chosen.
+     */
+    abstract protected int chooseGrowthCells(int[] cells);
+
+    /**
+     * Abstract method:
+     * 
+     * Returns a new plant of the same kind at the given location.
+     * 
+     * @param field - the current field.
+     * @param loc - the location of the new plant.
+     * @return Plant - the new plant.
      */
-    abstract protected void grow(List<Plant> newPlants);
+    abstract protected Plant getNewPlant(Field field, Location loc);
     
     /**
      * Checks if the plant is alive or not.
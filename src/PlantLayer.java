@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * Runs the plants of a simulation that keeps them in a plant layer
+ * instead of as actors (see Simulator.setPlantMode()).
+ *
+ * A plant has no state of its own beyond its kind, so in the plant layer
+ * it is only the species id of its cell, one byte in the field (see
+ * Field.placePlant()), and costs no Algae or Plankton object. Once a step
+ * the layer sweeps the field row by row, skipping the empty cells 64 at a
+ * time with the occupancy bitboard, and applies the rules the plant
+ * classes follow:
+ * - a plant outside the habitat of its kind dies;
+ * - during the day plankton may grow into each free neighbouring cell,
+ *   and algae rooted in soil (see Field.isRooted()) into the free cell
+ *   above them, each with the growth chance of its kind.
+ * The chances of growing are taken through the SpawnScheduler, so only
+ * the plants that do grow draw random numbers.
+ * The new plants are placed once the sweep is over, so that, as with the
+ * actors, the plants born in a step only grow from the next one.
+ *
+ * Animals eat the plants of the layer straight from the field (see
+ * Animal.eatLayerPlant()).
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class PlantLayer
+{
+    // The cells the plants grow into this step, and their species.
+    private int[] growthCells;
+    private byte[] growthSpecies;
+    // How many there are.
+    private int growthCount;
+    // The cells one plankton grows into.
+    private final int[] planktonCells;
+
+    /**
+     * Create a plant layer.
+     */
+    public PlantLayer()
+    {
+        growthCells = new int[64];
+        growthSpecies = new byte[64];
+        planktonCells = new int[Field.NEIGHBOURS];
+    }
+
+    /**
+     * Return how much food a plant of the layer gives.
+     * @param id The species id of the plant.
+     * @param sim The simulator.
+     * @return The food value.
+     */
+    public static int getFoodValue(byte id, Simulator sim)
+    {
+        return id == Species.ALGAE ? Algae.getFoodValue(sim) : Plankton.getFoodValue(sim);
+    }
+
+    /**
+     * Let the plants of the layer live one step: the ones outside their
+     * habitat die, and during the day the others grow.
+     * @param field The field.
+     * @param sim The simulator.
+     */
+    public void step(Field field, Simulator sim)
+    {
+        boolean day = sim.getDayNightCycle().getPartOfDay() == DayNightCycle.DAY;
+        double algaeChance = Algae.getGrowthChance(sim);
+        double planktonChance = Plankton.getGrowthChance(sim);
+        int width = field.getWidth();
+        growthCount = 0;
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col64 = 0; col64 < width; col64 += 64) {
+                long occupied = field.getOccupiedBits(row, col64, 64);
+                while(occupied != 0) {
+                    int col = col64 + Long.numberOfTrailingZeros(occupied);
+                    occupied &= occupied - 1;
+                    int index = field.indexOf(row, col);
+                    if(!field.isLayerPlant(index)) {
+                        continue;
+                    }
+                    if(field.getSpeciesAt(index) == Species.ALGAE) {
+                        if(!Algae.isInHabitatStatic(field.locationOf(index), sim)) {
+                            field.clear(index);
+                        }
+                        else if(day) {
+                            growAlgae(field, sim, index, row, col, algaeChance);
+                        }
+                    }
+                    else {
+                        if(!Plankton.isInHabitatStatic(field.locationOf(index), sim)) {
+                            field.clear(index);
+                        }
+                        else if(day) {
+                            growPlankton(field, sim, index, planktonChance);
+                        }
+                    }
+                }
+            }
+        }
+        for(int i = 0; i < growthCount; i++) {
+            if(field.isFree(growthCells[i])) {
+                field.placePlant(growthCells[i], growthSpecies[i]);
+            }
+        }
+    }
+
+    /**
+     * Let algae grow into the cell above, as Algae.chooseGrowthCells() does.
+     */
+    private void growAlgae(Field field, Simulator sim, int index, int row, int col, double chance)
+    {
+        if(field.isRooted(row, col)) {
+            int above = field.indexOf(row - 1, col);
+            if(field.isFree(above) && SpawnScheduler.forThread().trial(Species.ALGAE, chance)
+               && Algae.isInHabitatStatic(field.locationOf(above), sim)) {
+                addGrowth(above, Species.ALGAE);
+            }
+        }
+    }
+
+    /**
+     * Let plankton grow into the free cells around it, as Plankton.chooseGrowthCells() does.
+     */
+    private void growPlankton(Field field, Simulator sim, int index, double chance)
+    {
+        int count = Plankton.chooseGrowthCells(field, index, chance, sim, planktonCells);
+        for(int i = 0; i < count; i++) {
+            addGrowth(planktonCells[i], Species.PLANKTON);
+        }
+    }
+
+    /**
+     * Remember a cell a plant grows into.
+     */
+    private void addGrowth(int index, byte id)
+    {
+        if(growthCount == growthCells.length) {
+            growthCells = Arrays.copyOf(growthCells, growthCount * 2);
+            growthSpecies = Arrays.copyOf(growthSpecies, growthCount * 2);
+        }
+        growthCells[growthCount] = index;
+        growthSpecies[growthCount] = id;
+        growthCount++;
+    }
+}
@@ -1,7 +1,5 @@
-import java.util.Queue;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 /**
  * Abstract class Predator - This abstract class implements
  * the functionality of the Actor class through the act method defined here.
@@ -17,6 +15,22 @@ import java.util.List;
  */
 public abstract class Predator extends Animal
 {    
+    // The search used for hunting, one per thread so that it can keep its buffers.
+    private static final ThreadLocal<HuntingEngine> HUNTING_ENGINE = ThreadLocal.withInitial(HuntingEngine::new);
+    // The search used for hunting on the bitboards, one per thread.
+    private static final ThreadLocal<BitboardHunt> BITBOARD_HUNT = ThreadLocal.withInitial(BitboardHunt::new);
+    // How many times a predator went on with its chase instead of searching again.
+    private static final AtomicLong REPLANS_AVOIDED = new AtomicLong();
+
+    // The prey being chased, null if none.
+    private Prey chaseTarget;
+    // The cells of the chase, from the first step to where the prey was seen.
+    private int[] chasePath;
+    private int chaseLength;
+    // The next cell of the chase to step to.
+    private int chasePosition;
+    // The step of the simulation in which the chase was planned.
+    private int chaseStep;
 
     /**
      * Abstract constructor of the Predator type objects.
@@ -54,19 +68,9 @@ public abstract class Predator extends Animal
         incrementAge();
         incrementHunger();
         if(isAlive()){
-            Queue<Location> huntQueue = new LinkedList<>();
-            int[][] fieldMatrix = new int[super.getField().getDepth()][super.getField().getWidth()];
-            huntQueue.add(super.getLocation());
-            fieldMatrix[super.getLocation().getRow()][super.getLocation().getCol()] = 1;
-            Location nextLocation = hunt(0,huntQueue,fieldMatrix);
+            Location nextLocation = hunt();
             if ( nextLocation == null) {
-                List<Location> randomAdjLoc = super.getField().getFreeAdjacentLocations(getLocation());
-                for (Location l : randomAdjLoc) {
-                    if ( isInHabitat(l) ) {
-                        nextLocation = l;
-                        break;
-                    }
-                }
+                nextLocation = findFreeLocationInHabitat();
             }
 
             if (nextLocation == null) {
@@ -88,141 +92,213 @@ public abstract class Predator extends Animal
     abstract protected int getMaxHuntingRange();
 
     /**
-     * Hunting method that uses a complex algorithm to find the food.
+     * Hunting method: find a prey and go for it.
+     * 
+     * The predator searches, in the way set by the hunting mode of the simulator, for the
+     * nearest prey in habitat within the hunting range, and works out the path to it.
      * 
-     * At each step it increases the current range of hunting, checks if it is still int the max hunting range
-     * and it looks for food that is in habitat.
+     * With the catching rule CATCH_ON_SIGHT (the default) the predator catches the prey it
+     * found and feeds, then moves to the first cell of the path, which is next to it.
      * 
-     * If it finds food (Prey instance) then it calls the findPrey location that gives the predator the path
-     * to the prey. If the prey is exactly near the predator then the predator will feed. Otherwise the predator
-     * will calculate its path (recursively) to the prey using findPrey method and it will go in the prey's direction.
+     * With CATCH_NEXT_TO only a prey next to the predator is caught and eaten, and the
+     * predator moves to its cell. A prey further away is chased: the predator moves one cell
+     * along the path and keeps the rest of it. On later steps it goes on with that path, as
+     * long as the prey is alive, has not run off the end of the path and the next cell of
+     * the path is still free and in habitat, and only searches again when it does not hold.
      * 
-     * @param currentRange - int - the current hunting range of the animal
-     * @param huntQueue - Queue<Location> - the hunting queue that services the hunting locations.
-     * @param fieldMatrix - int[][] - the matrix of the field with initial values of 0.
+     * @return Location - the location to move to, or null if no prey was found.
      */
-    protected Location hunt(int currentRange, Queue<Location> huntQueue,int[][] fieldMatrix) {
+    protected Location hunt() {
         Field field = super.getField();
-        if (huntQueue.isEmpty() || currentRange >= getMaxHuntingRange()) {
+        int next = nextHuntStep(field, field.indexOf(getLocation()));
+        if (next == Intent.NONE) {
             return null;
         }
-        currentRange ++;
-        Location currentLocation = huntQueue.remove();
-        List<Location> adjacent = field.adjacentLocations(currentLocation);
-        for (Location l : adjacent) {
-            if (isInHabitat(l) && fieldMatrix[l.getRow()][l.getCol()] == 0){
-                Object obj = field.getObjectAt(l);
-                if (obj == null) {
-                    huntQueue.add(l);
-                    fieldMatrix[l.getRow()][l.getCol()] = fieldMatrix[currentLocation.getRow()][currentLocation.getCol()] + 1;
-                }else if (obj instanceof Prey) {
-                    Prey prey = (Prey) obj;
-                    if (prey.isAlive()) {
-                        fieldMatrix[l.getRow()][l.getCol()] = fieldMatrix[currentLocation.getRow()][currentLocation.getCol()] + 1;
-                        Location properLocation = findPrey(fieldMatrix,prey.getLocation());
-                        List<Location> initialAdjLocations = field.adjacentLocations(getLocation());
-                        for (Location loc : initialAdjLocations) {
-                            if (loc.equals(properLocation)) {
-                                prey.setDead();
-                                increaseFoodLevel(prey.getFoodValue());
-                                return properLocation;
-                            }
-                        }
-                        return  properLocation;
-                    }else {
-                        huntQueue.add(l);
-                        fieldMatrix[l.getRow()][l.getCol()] = fieldMatrix[currentLocation.getRow()][currentLocation.getCol()] + 1;
-                    }
+        if (catches(field, next)) {
+            // With shared distances the prey takes itself off the map (see Prey.setDead()).
+            chaseTarget.setDead();
+            increaseFoodLevel(chaseTarget.getFoodValue());
+            chaseTarget = null;
+        }
+        return field.locationOf(next);
+    }
 
-                }else {
-                    fieldMatrix[l.getRow()][l.getCol()] = -1;
-                }
+    /**
+     * Implements Actor.plan():
+     * 
+     * The predator plans the same things act does - hunt, or else move randomly, and breed -
+     * without changing anything yet. The prey it catches is only marked as its food.
+     * 
+     * @param intent - Intent - where to put the plan.
+     */
+    protected void plan(Intent intent) {
+        if (!isInHabitat(super.getLocation())) {
+            intent.setDies();
+            return;
+        }
+        Field field = super.getField();
+        int next = nextHuntStep(field, field.indexOf(getLocation()));
+        if (next != Intent.NONE && catches(field, next)) {
+            intent.setFood(chaseTarget, field.indexOf(chaseTarget.getLocation()));
+            chaseTarget = null;
+        }
+        if (next == Intent.NONE) {
+            Location free = findFreeLocationInHabitat();
+            if (free == null) {
+                intent.setDies();
+                return;
             }
+            next = field.indexOf(free);
         }
-        return hunt(currentRange,huntQueue,fieldMatrix);
+        intent.setMove(next);
+        planBirths(intent);
     }
-    
+
     /**
-     * This method finds the prey based on it's location. The distances are mapped in the field matrix
-     * with the predator location being noted as '1' and the prey's location as a number of steps 
-     * (may vary from 2 -> to the maximum hunting range of the predator).
+     * Check whether the predator catches the prey it is going for this step, under the
+     * catching rule of the simulator.
      * 
-     * @param fieldMatrix  - int[][] - the integer field matrix for calculations.
-     * @param currentLocation - Location - the prey location.
+     * @param field - Field - the field of the predator.
+     * @param next - int - the cell the predator steps to.
+     * @return boolean - true if it catches the prey.
+     */
+    private boolean catches(Field field, int next) {
+        return getSim().getCatchRule() == Simulator.CATCH_ON_SIGHT || field.getObjectAt(next) == chaseTarget;
+    }
+
+    /**
+     * Work out the next cell of the hunt: follow the chase if it still holds, otherwise
+     * search again. Only the chase of this predator is changed. A predator that catches
+     * on sight has never anything left to chase, so it always searches.
      * 
-     * @return Location the location (direction) that the predator should move to.
+     * @param field - Field - the field of the predator.
+     * @param here - int - the cell of the predator.
+     * @return int - the cell to step to, which is the prey's if it is next to the predator,
+     *               or Intent.NONE if no prey was found.
      */
-    private Location findPrey(int[][] fieldMatrix, Location currentLocation) {
-        int row = currentLocation.getRow();
-        int col = currentLocation.getCol();
-        int val = fieldMatrix[row][col];
-        int depth = getField().getDepth();
-        int width = getField().getWidth();
-        while (val > 2) {
-            boolean changed = false;
-            if (row-1 >= 0 && changed == false) {
-                if(fieldMatrix[row-1][col] == val - 1) {
-                    row --;
-                    val --;
-                    changed = true;
-                }
-            }
-            if(col-1 >= 0 && changed == false) {
-                if(fieldMatrix[row][col-1] == val - 1) {
-                    col --;
-                    val --;
-                    changed = true;
-                }
-            }
-            if (col+1 < width && changed == false){
-                if(fieldMatrix[row][col+1] == val - 1) {
-                    col++;
-                    val --;
-                    changed = true;
-                }
-            }
-            if (row+1 < depth && changed == false){
-                if(fieldMatrix[row+1][col] == val - 1) {
+    private int nextHuntStep(Field field, int here) {
+        if (canFollowChase(field, here)) {
+            REPLANS_AVOIDED.incrementAndGet();
+        }else if (!planChase(field, here)) {
+            chaseTarget = null;
+            return Intent.NONE;
+        }
+        return chasePath[chasePosition++];
+    }
 
-                    row++;
-                    val --;
-                    changed = true;
-                }
-            }
-            if (row+1 < depth && col+1 < width && changed == false) {
-                if(fieldMatrix[row + 1][col + 1] == val - 1) {
-                    row++;
-                    col++;
-                    val--;
-                    changed = true;
-                }
-            }
-            if (row+1 <  depth && col-1 >= 0 && changed == false) {
-                if(fieldMatrix[row + 1][col - 1] == val - 1) {
-                    row++;
-                    col--;
-                    val--;
-                    changed = true;
-                }
-            } 
-            if (row-1 >= 0 && col+1 < width && changed ==false) {
-                if(fieldMatrix[row - 1][col + 1] == val - 1) {
-                    row--;
-                    col++;
-                    val--;
-                    changed = true;
-                }
+    /**
+     * Returns how many times, over all predators, a chase was carried on
+     * without searching for the prey again. Chases are only kept with the
+     * catching rule CATCH_NEXT_TO.
+     * @return long - the number of searches saved.
+     */
+    public static long getReplansAvoided() {
+        return REPLANS_AVOIDED.get();
+    }
+
+    /**
+     * Check that the chase worked out in an earlier step can still be followed.
+     * If the prey has come next to the predator the chase is cut short to end on it.
+     * 
+     * @param field - Field - the field of the predator.
+     * @param here - int - the cell of the predator.
+     * @return boolean - true if the predator can take the next step of its chase.
+     */
+    private boolean canFollowChase(Field field, int here) {
+        if (chaseTarget == null || !chaseTarget.isAlive() || chasePosition >= chaseLength
+            || getSim().getStep() - chaseStep != chasePosition) {
+            return false;
+        }
+        Location preyLocation = chaseTarget.getLocation();
+        int preyCell = field.indexOf(preyLocation);
+        if (isNextTo(field, here, preyCell)) {
+            if (!isInHabitat(preyLocation)) {
+                return false;
             }
-            if (row-1 >= 0 && col-1 >= 0 && changed == false) {
-                if(fieldMatrix[row - 1][col - 1] == val - 1) {
-                    row--;
-                    col--;
-                    val--;
-                    changed = true;
-                }
+            chasePath[chasePosition] = preyCell;
+            chaseLength = chasePosition + 1;
+            return true;
+        }
+        int next = chasePath[chasePosition];
+        return isNextTo(field, here, next) && field.isFree(next)
+               && isInHabitat(field.locationOf(next))
+               && (preyCell == chasePath[chaseLength - 1] || isNextTo(field, preyCell, chasePath[chaseLength - 1]));
+    }
+
+    /**
+     * Search for the nearest prey, in the way set by the hunting mode of the simulator,
+     * and start chasing it.
+     * 
+     * @param field - Field - the field of the predator.
+     * @param here - int - the cell of the predator.
+     * @return boolean - true if a prey was found.
+     */
+    private boolean planChase(Field field, int here) {
+        if (chasePath == null) {
+            chasePath = new int[getMaxHuntingRange() + 1];
+        }
+        int mode = getSim().getHuntingMode();
+        if (mode == Simulator.HUNT_SHARED_DISTANCES) {
+            chaseLength = planWithSharedDistances(field, here);
+        }else if (mode == Simulator.HUNT_BITBOARDS) {
+            BitboardHunt search = BITBOARD_HUNT.get();
+            search.search(this, field, here, getMaxHuntingRange());
+            chaseLength = search.getPath(chasePath);
+        }else {
+            HuntingEngine engine = HUNTING_ENGINE.get();
+            engine.search(this, field, here, getMaxHuntingRange());
+            chaseLength = engine.getPath(chasePath);
+        }
+        if (chaseLength == 0) {
+            return false;
+        }
+        Object prey = field.getObjectAt(chasePath[chaseLength - 1]);
+        if (!(prey instanceof Prey) || !((Prey) prey).isAlive()) {
+            return false;
+        }
+        chaseTarget = (Prey) prey;
+        chasePosition = 0;
+        chaseStep = getSim().getStep();
+        return true;
+    }
+
+    /**
+     * Work out a path to the nearest prey from the distance map the simulator builds once
+     * per step for all predators (see PreyDistanceField), instead of a search of its own.
+     * The predator reaches as far as its own search would (see PreyDistanceField.nextStep()).
+     * The map does not know about habitats, so a path that leaves the predator's habitat,
+     * or ends on a prey outside it, counts as no prey found - its own search would not have
+     * gone that way.
+     * 
+     * @param field - Field - the field of the predator.
+     * @param here - int - the cell of the predator.
+     * @return int - the length of the path put in chasePath, 0 if no prey was found.
+     */
+    private int planWithSharedDistances(Field field, int here) {
+        PreyDistanceField distances = getSim().getPreyDistances();
+        int move = distances.nextStep(this, here, getMaxHuntingRange());
+        if (move == PreyDistanceField.NONE) {
+            return 0;
+        }
+        if (!field.isFree(move)) {
+            chasePath[0] = move;
+            return 1;
+        }
+        // The map is from the start of the step - the way may have been cut since.
+        int length = distances.pathFrom(move, chasePath);
+        for (int i = 1; i < length; i++) {
+            if (!isInHabitat(field.locationOf(chasePath[i]))) {
+                return 0;
             }
         }
-        return new Location(row,col);
+        return length;
     }
-}
 
+    /**
+     * Check whether two cells are next to each other.
+     */
+    private static boolean isNextTo(Field field, int a, int b) {
+        return a != b && Math.abs(field.rowOf(a) - field.rowOf(b)) <= 1
+               && Math.abs(field.colOf(a) - field.colOf(b)) <= 1;
+    }
+}
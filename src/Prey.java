@@ -1,6 +1,3 @@
-import java.util.Queue;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 /**
@@ -27,6 +24,20 @@ public abstract class Prey extends Animal
         super(randomAge,field,location, sim);
     }
 
+    /**
+     * Indicate that the prey is no longer alive, however it died - eaten, of age, of hunger
+     * or out of its habitat. With the hunting mode HUNT_SHARED_DISTANCES the map of prey
+     * distances is updated around its cell, so the predators after it do not go for it.
+     */
+    protected void setDead() {
+        Field field = getField();
+        Location location = getLocation();
+        super.setDead();
+        if (location != null && getSim().getHuntingMode() == Simulator.HUNT_SHARED_DISTANCES) {
+            getSim().getPreyDistances().preyRemoved(field, field.indexOf(location));
+        }
+    }
+
     /**
      * Abstract method implemented:
      * 
@@ -59,13 +70,7 @@ public abstract class Prey extends Animal
                     nextLocation = findFood(); // The animal searches for food in it's vicinity.
                 }  
                 if (nextLocation == null) { // If it doesn't find any food it will go randomly checking if the location is in habitat.
-                    List<Location> randomAdjLoc = super.getField().getFreeAdjacentLocations(getLocation());
-                    for (Location l : randomAdjLoc) {
-                        if ( isInHabitat(l) ) {
-                            nextLocation = l;
-                            break;
-                        }
-                    }
+                    nextLocation = findFreeLocationInHabitat();
                 }
 
                 if (nextLocation == null) { // This means that the animal is no longer in the habitat so it should die.
@@ -100,28 +105,88 @@ public abstract class Prey extends Animal
      */
     abstract public int getFoodValue();
 
+    /**
+     * Implements Actor.plan():
+     * 
+     * The prey plans the same things act does - look for food, or else move randomly, and breed -
+     * without changing anything yet. The plant it finds is only marked as its food.
+     * 
+     * @param intent - Intent - where to put the plan.
+     */
+    protected void plan(Intent intent) {
+        if (!isInHabitat(super.getLocation()) ) {
+            intent.setDies();
+            return;
+        }
+
+        DayNightCycle cycle = super.getSim().getDayNightCycle();
+        if(!(cycle.getPartOfDay() == DayNightCycle.DAY ||
+        rand.nextDouble() >= 0.5 ||
+        super.getFoodLevel() <= getMaxFoodLevel()/4)) {
+            intent.setResting();
+            return;
+        }
+        Field field = getField();
+        int next = Intent.NONE;
+        if ( super.getFoodLevel() - 1 < getMaxFoodLevel()/2 ){ // The food level it will have after this step's hunger.
+            next = findFoodCell();
+            if (next != Intent.NONE) {
+                intent.setFood(field.getObjectAt(next), next);
+            }
+        }
+        if (next == Intent.NONE) {
+            Location free = findFreeLocationInHabitat();
+            if (free == null) {
+                intent.setDies();
+                return;
+            }
+            next = field.indexOf(free);
+        }
+        intent.setMove(next);
+        planBirths(intent);
+    }
+
     /**
      * This method implements food seeking ability that animal have. Though it is not as complex as predators'
      * - the predators only search for food in their vicinity.
      */
     private Location findFood() {
+        int next = findFoodCell();
+        if (next == Intent.NONE) { // Return null .. so the animal can seek a random place to go to.
+            return null;
+        }
+        if (getField().isLayerPlant(next)) {
+            eatLayerPlant(next);
+            return getField().locationOf(next);
+        }
+        Plant plant = (Plant) getField().getObjectAt(next);
+        plant.setDead();
+        increaseFoodLevel(plant.getFoodValue()); // Then it feeds itself.
+        return getField().locationOf(next);
+    }
+
+    /**
+     * Look around for a live plant in habitat.
+     * @return int - the cell of the plant, or Intent.NONE if there is none.
+     */
+    private int findFoodCell() {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            if (isInHabitat(where)) {
-                Object p = field.getObjectAt(where);
-                if(p instanceof Plant) { // If it find's a plant object ...
-                    Plant plant = (Plant) p;
-                    if(plant.isAlive()) { 
-                        plant.setDead();
-                        increaseFoodLevel(plant.getFoodValue()); // Then it feeds itself.
-                        return where;
-                    }
+        int here = field.indexOf(getLocation());
+        int order = field.randomNeighbourOrder();
+        for (int k = 0; k < Field.NEIGHBOURS; k++) {
+            int next = field.neighbour(here, order, k);
+            Object p = field.getObjectAt(next);
+            if(field.isLayerPlant(next)) { // A plant of the plant layer is always alive.
+                if(isInHabitat(field.locationOf(next))) {
+                    return next;
+                }
+            }else if(p instanceof Plant) { // If it find's a plant object ...
+                Plant plant = (Plant) p;
+                if(plant.isAlive() && isInHabitat(field.locationOf(next))) {
+                    return next;
                 }
             }
-        }// Otherwise return null .. so the animal can seek a random place to go to.
-        return null;
+        }
+        return Intent.NONE;
     }
 }
@@ -0,0 +1,349 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A map, shared by all the predators, of how far every cell of the field
+ * is from the nearest prey. It is built once per step by a breadth first
+ * search that starts from every live prey at once and stops at the largest
+ * hunting range, so a predator only has to look at its eight neighbours
+ * to know which way to go - instead of every predator running its own
+ * search over the same cells.
+ *
+ * Distances are counted in cells (a prey is at 0, its neighbours at 1)
+ * and paths only go through empty cells. When a prey dies during the
+ * step - eaten in either step mode, of age, of hunger or out of its
+ * habitat (see Prey.setDead()) - the distances around it are worked out
+ * again, so the map stays right for the predators that act after. That
+ * is only done when the map is next read, as a prey that dies while no
+ * predator reads the map - in the commit phase of a two-phase step, say -
+ * would be worked out again for nothing before the next rebuild. So the
+ * map is only read by several threads at once when nothing is waiting.
+ *
+ * The map does not know about habitats; a predator only follows it
+ * into cells that are in its own habitat.
+ *
+ * A predator reaches no further than it would with its own search. The
+ * hunting range of HuntingEngine is how many cells the search may expand,
+ * the predator's own cell first, and each level of the search expands the
+ * empty cells one step further out. So before following the map to a
+ * prey, nextStep() counts the empty cells of the predator's habitat in the
+ * rings around it (see Field.getPassableBits()) and checks that the range
+ * lasts until the ring next to the prey; if it runs out part way through
+ * that ring, the prey is reached by the same chance as a search that
+ * expands that many of its cells. The rings are counted whole, so cells
+ * the search could not get to are counted too.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class PreyDistanceField
+{
+    // Returned when there is no prey within range.
+    public static final int NONE = -1;
+    // The distance of a cell that no prey can be reached from.
+    private static final byte UNREACHED = Byte.MAX_VALUE;
+
+    // The random number generator used when a range runs out part way through a ring.
+    private static final Random rand = Randomizer.getRandom();
+
+    // The field the distances were computed for.
+    private Field field;
+    // The distance to the nearest prey of every cell of the field.
+    private byte[] distances;
+    // The largest distance worked out.
+    private int range;
+    // The cells of the current and the next level of the search.
+    private int[] current;
+    private int[] next;
+
+    // The cells of the prey that died since the map was last read.
+    private int[] removed;
+    private int removedCount;
+
+    // Scratch space for the local search run when a prey is eaten.
+    private byte[] local;
+    private int localSide;
+
+    /**
+     * Create an empty map. Call rebuild() before using it.
+     */
+    public PreyDistanceField()
+    {
+        range = 0;
+        current = new int[64];
+        next = new int[64];
+        removed = new int[64];
+    }
+
+    /**
+     * Work out the distances of the whole field from scratch.
+     * @param field The field.
+     * @param range The largest hunting range of any predator.
+     */
+    public void rebuild(Field field, int range)
+    {
+        this.range = Math.min(range, UNREACHED - 1);
+        if(this.field != field) {
+            this.field = field;
+            distances = new byte[field.getCellCount()];
+        }
+        Arrays.fill(distances, UNREACHED);
+        removedCount = 0;
+
+        // Every live prey is a starting point.
+        int count = 0;
+        for(int row = 0; row < field.getDepth(); row++) {
+            int index = field.indexOf(row, 0);
+            for(int col = 0; col < field.getWidth(); col++, index++) {
+                if(Species.isPrey(field.getSpeciesAt(index))) {
+                    distances[index] = 0;
+                    current = add(current, count++, index);
+                }
+            }
+        }
+
+        for(int distance = 1; distance <= this.range && count > 0; distance++) {
+            int nextCount = 0;
+            for(int i = 0; i < count; i++) {
+                for(int k = 0; k < Field.NEIGHBOURS; k++) {
+                    int cell = field.neighbour(current[i], 0, k);
+                    if(distances[cell] == UNREACHED && field.isFree(cell)) {
+                        distances[cell] = (byte) distance;
+                        next = add(next, nextCount++, cell);
+                    }
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            count = nextCount;
+        }
+    }
+
+    /**
+     * Find the neighbour of a predator that is closest to a prey.
+     * @param predator The predator.
+     * @param here The cell of the predator.
+     * @param huntingRange How many cells the predator's search may expand,
+     *                     as for HuntingEngine.
+     * @return The cell to step to, or NONE if no prey is in range.
+     */
+    public int nextStep(Predator predator, int here, int huntingRange)
+    {
+        applyRemovals();
+        int best = NONE;
+        int bestDistance = Math.min(huntingRange, range + 1);
+        int order = field.randomNeighbourOrder();
+        for(int k = 0; k < Field.NEIGHBOURS; k++) {
+            int cell = field.neighbour(here, order, k);
+            int distance = distances[cell] + 1;
+            if(distance <= bestDistance && (distance < bestDistance || best == NONE)
+               && field.isInside(cell) && predator.isInHabitat(field.locationOf(cell))) {
+                if(distance == 1) {
+                    // A prey right next to the predator: nothing can be closer.
+                    if(field.getObjectAt(cell) instanceof Prey) {
+                        return cell;
+                    }
+                }
+                else if(field.isFree(cell)) {
+                    best = cell;
+                    bestDistance = distance;
+                }
+            }
+        }
+        if(best != NONE && !inReach(predator, here, bestDistance, huntingRange)) {
+            return NONE;
+        }
+        return best;
+    }
+
+    /**
+     * Check whether a search that may expand range cells, as HuntingEngine's,
+     * gets to a prey the given number of cells away from the predator: it has
+     * to expand one of the cells next to the prey, one cell nearer.
+     */
+    private boolean inReach(Predator predator, int here, int distance, int range)
+    {
+        byte species = predator.getSpeciesId();
+        int row = field.rowOf(here);
+        int col = field.colOf(here);
+        // The cells expanded up to the ring before, and up to the ring being counted.
+        int before = 0;
+        int through = 1;
+        for(int ring = 1; ring < distance; ring++) {
+            if(through >= range) {
+                return false;
+            }
+            int open = openCells(species, row, col, ring);
+            if(open == 0) {
+                return false;
+            }
+            before = through;
+            through += open;
+        }
+        if(through <= range) {
+            return true;
+        }
+        return rand.nextInt(through - before) < range - before;
+    }
+
+    /**
+     * Count the empty cells of a species' habitat in the ring of cells the
+     * given number of cells away from a cell.
+     */
+    private int openCells(byte species, int row, int col, int ring)
+    {
+        int side = 2 * ring + 1;
+        int count = 0;
+        for(int r = Math.max(0, row - ring); r <= Math.min(field.getDepth() - 1, row + ring); r++) {
+            long open = field.getPassableBits(species, r, col - ring, side)
+                        & ~field.getOccupiedBits(r, col - ring, side);
+            if(r != row - ring && r != row + ring) {
+                // Only the two ends of the rows in between are in the ring.
+                open &= 1L | (1L << (side - 1));
+            }
+            count += Long.bitCount(open);
+        }
+        return count;
+    }
+
+    /**
+     * Follow the distances down from a cell to the prey they lead to.
+     * @param cell A cell with a known distance.
+     * @param path Where to put the cells passed through, starting with
+     *             the given cell and ending with the prey. Needs room for
+     *             the distance of the cell plus one.
+     * @return How many cells the path has, or 0 if the way has been cut.
+     */
+    public int pathFrom(int cell, int[] path)
+    {
+        applyRemovals();
+        int distance = distances[cell];
+        if(distance == UNREACHED) {
+            return 0;
+        }
+        int length = distance + 1;
+        path[0] = cell;
+        for(int step = 1; step < length; step++) {
+            int down = NONE;
+            for(int k = 0; k < Field.NEIGHBOURS && down == NONE; k++) {
+                int neighbour = field.neighbour(cell, 0, k);
+                if(distances[neighbour] == distance - 1) {
+                    down = neighbour;
+                }
+            }
+            if(down == NONE) {
+                return 0;
+            }
+            cell = down;
+            distance--;
+            path[step] = cell;
+        }
+        return length;
+    }
+
+    /**
+     * Note that the prey in the given cell has gone. The distances around
+     * it are updated before the map is next read.
+     * @param field The field the prey was in; a field the distances were
+     *              not worked out for is left alone.
+     * @param gone The cell the prey was in.
+     */
+    public void preyRemoved(Field field, int gone)
+    {
+        if(field != this.field || distances[gone] != 0) {
+            return;
+        }
+        removed = add(removed, removedCount++, gone);
+    }
+
+    /**
+     * Update the distances around the prey that have gone since the map
+     * was last read.
+     */
+    private void applyRemovals()
+    {
+        for(int i = 0; i < removedCount; i++) {
+            updateAround(removed[i]);
+        }
+        removedCount = 0;
+    }
+
+    /**
+     * Update the distances after the prey in the given cell has gone.
+     * Only cells within range of that cell can have used it as their
+     * nearest prey, and any path of at most range cells that reaches
+     * them lies within twice the range. So a search over that square,
+     * from the prey still in it, gives their new distances exactly.
+     * @param gone The cell the prey was in.
+     */
+    private void updateAround(int gone)
+    {
+        if(distances[gone] != 0) {
+            // Already worked out again around another prey that has gone.
+            return;
+        }
+        int reach = 2 * range;
+        int side = 2 * reach + 1;
+        if(local == null || localSide < side) {
+            local = new byte[side * side];
+            localSide = side;
+        }
+        Arrays.fill(local, 0, side * side, UNREACHED);
+        int goneRow = field.rowOf(gone);
+        int goneCol = field.colOf(gone);
+
+        int count = 0;
+        for(int row = Math.max(0, goneRow - reach); row <= Math.min(field.getDepth() - 1, goneRow + reach); row++) {
+            for(int col = Math.max(0, goneCol - reach); col <= Math.min(field.getWidth() - 1, goneCol + reach); col++) {
+                int index = field.indexOf(row, col);
+                if(Species.isPrey(field.getSpeciesAt(index))) {
+                    local[(row - goneRow + reach) * side + col - goneCol + reach] = 0;
+                    current = add(current, count++, index);
+                }
+            }
+        }
+        for(int distance = 1; distance <= range && count > 0; distance++) {
+            int nextCount = 0;
+            for(int i = 0; i < count; i++) {
+                int row = field.rowOf(current[i]) - goneRow + reach;
+                int col = field.colOf(current[i]) - goneCol + reach;
+                for(int k = 0; k < Field.NEIGHBOURS; k++) {
+                    int r = row + Field.directionRow(k);
+                    int c = col + Field.directionCol(k);
+                    if(r >= 0 && r < side && c >= 0 && c < side && local[r * side + c] == UNREACHED) {
+                        int cell = field.neighbour(current[i], 0, k);
+                        if(field.isFree(cell)) {
+                            local[r * side + c] = (byte) distance;
+                            next = add(next, nextCount++, cell);
+                        }
+                    }
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            count = nextCount;
+        }
+
+        // Copy back the cells within range of the prey that has gone.
+        for(int row = Math.max(0, goneRow - range); row <= Math.min(field.getDepth() - 1, goneRow + range); row++) {
+            for(int col = Math.max(0, goneCol - range); col <= Math.min(field.getWidth() - 1, goneCol + range); col++) {
+                distances[field.indexOf(row, col)] = local[(row - goneRow + reach) * side + col - goneCol + reach];
+            }
+        }
+    }
+
+    /**
+     * Store a value in a growable list of cells.
+     * @return The list, grown if it was full.
+     */
+    private static int[] add(int[] list, int position, int value)
+    {
+        if(position == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+        }
+        list[position] = value;
+        return list;
+    }
+}
@@ -1,10 +1,20 @@
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
+ * Provide control over the randomization of the simulation. By using the shared, fixed-seed
+ * randomizer, repeated runs will perform exactly the same (which helps with testing). Set
  * 'useShared' to false to get different random behaviour every time.
- * 
+ *
+ * The shared generator holds no state of its own. Every draw comes from
+ * the stream bound to the thread making it (see bind()), or from a
+ * stream of the thread's own seeded with the fixed seed if none is bound.
+ * A simulator binds streams made from its seed, the step and the part of
+ * the step being worked on (see newStream()), so its results only depend
+ * on the seed - not on how the threads are scheduled, nor on any other
+ * simulator running in the same program. The streams are SplittableRandom
+ * objects, which need no locking.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -12,8 +22,13 @@ public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
+    // The stream bound to each thread, if any (see bind()).
+    private static final ThreadLocal<SplittableRandom> boundStreams = new ThreadLocal<>();
+    // The stream used by each thread with none bound.
+    private static final ThreadLocal<SplittableRandom> defaultStreams =
+        ThreadLocal.withInitial(() -> new SplittableRandom(SEED));
     // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    private static final Random rand = new StreamRandom();
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
 
@@ -37,16 +52,130 @@ public class Randomizer
             return new Random();
         }
     }
-    
+
     /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not through
-     * a shared Random generator.
+     * @return The default seed.
+     */
+    public static long getSeed()
+    {
+        return SEED;
+    }
+
+    /**
+     * Restart the default stream of the calling thread from the fixed
+     * seed, so that the draws it makes while no stream is bound repeat
+     * from the start. The streams bound by a simulator are not touched:
+     * they are restarted by making them again with newStream(). This will
+     * have no effect if randomization is not through a shared Random
+     * generator.
      */
     public static void reset()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            defaultStreams.set(new SplittableRandom(SEED));
+        }
+    }
+
+    /**
+     * Make the shared generator draw from the given stream on this thread.
+     * @param stream The stream, for example one from newStream(), or null
+     *               to go back to the thread's default stream.
+     * @return The stream bound before, or null - so it can be bound again
+     *         when the work is done.
+     */
+    public static SplittableRandom bind(SplittableRandom stream)
+    {
+        SplittableRandom previous = boundStreams.get();
+        if(stream == null) {
+            boundStreams.remove();
+        }
+        else {
+            boundStreams.set(stream);
+        }
+        return previous;
+    }
+
+    /**
+     * Create the stream of random numbers for one part of one step of a
+     * run. The same three numbers always give the same stream, and
+     * different ones give streams that have nothing to do with each other.
+     * @param seed The seed of the run.
+     * @param step The step.
+     * @param part The part of the step, for example a tile or an actor.
+     * @return A new generator.
+     */
+    public static SplittableRandom newStream(long seed, long step, long part)
+    {
+        return new SplittableRandom(mix(mix(mix(seed) + step) + part));
+    }
+
+    /**
+     * Scramble the bits of a number, so that close numbers give far apart seeds.
+     * @param value The number.
+     * @return The scrambled number.
+     */
+    public static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Return the stream the calling thread draws from: the one bound to
+     * it, or else its default stream.
+     * @return The stream.
+     */
+    public static SplittableRandom getStream()
+    {
+        return current();
+    }
+
+    /**
+     * Return the stream the calling thread draws from.
+     */
+    private static SplittableRandom current()
+    {
+        SplittableRandom stream = boundStreams.get();
+        return stream != null ? stream : defaultStreams.get();
+    }
+
+    /**
+     * The shared generator: every draw is passed on to the stream of the
+     * calling thread.
+     */
+    private static class StreamRandom extends Random
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected int next(int bits)
+        {
+            return current().nextInt() >>> (32 - bits);
+        }
+
+        public int nextInt()
+        {
+            return current().nextInt();
+        }
+
+        public int nextInt(int bound)
+        {
+            return current().nextInt(bound);
+        }
+
+        public long nextLong()
+        {
+            return current().nextLong();
+        }
+
+        public double nextDouble()
+        {
+            return current().nextDouble();
+        }
+
+        public boolean nextBoolean()
+        {
+            return current().nextBoolean();
         }
     }
 }
@@ -1,25 +1,22 @@
 import java.awt.Color;
-import java.util.List;
 /**
  * This class represents the Rock entity.
- * Essentially it is a no-op actor.
+ * 
+ * A rock is no actor: a cell of rock is only its species id in the field
+ * (see Field.placeTerrain()). This class only gives the colour of rock.
  *
  * @author Luca-Dorin Anton and Horia Pavel
  * @version v1.0
  */
-public class Rock extends Terrain
+public class Rock
 {
     // Each concrete class has a color.
     private static final Color COLOR = new Color(192,192,192);
     
     /**
-     * Constructor for Rock objects
-     * @param field - the current field.
-     * @param location - the location of the rock.
-     * @param sim - the simulator that operates this rock actor.
+     * There are no Rock objects.
      */
-    public Rock(Field field, Location location, Simulator sim) {
-        super(field,location, sim);
+    private Rock() {
     }
     
     /**
@@ -30,13 +27,4 @@ public class Rock extends Terrain
     public static Color getClassColor(){
         return COLOR;
     }
-    
-    /**
-     * Abstract method implemented:
-     * It does nothing.
-     * @param newActors - the new rocks to be displayed.
-     */
-    public void act(List<Actor> newActors) {
-        // I have nothin' to do. I am a rock.
-    }
 }
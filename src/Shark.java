@@ -52,7 +52,7 @@ public class Shark extends Predator
      * @return int maximum hunting range.
      */
     protected int getMaxHuntingRange() {
-        return MAX_HUNTING_RANGE;
+        return parameter(Parameters.MAX_HUNTING_RANGE, MAX_HUNTING_RANGE);
     }
 
     /**
@@ -60,7 +60,7 @@ public class Shark extends Predator
      * @return int - the breeding age.
      */
     protected int getBreedingAge() {
-        return BREEDING_AGE;
+        return parameter(Parameters.BREEDING_AGE, BREEDING_AGE);
     }
 
     /**
@@ -68,7 +68,7 @@ public class Shark extends Predator
      * @return int - the maximum number of live young this entity can give birth to.
      */
     protected int getMaxSpawnSize() {
-        return MAX_SPAWN_SIZE;
+        return parameter(Parameters.MAX_SPAWN_SIZE, MAX_SPAWN_SIZE);
     }
 
     /**
@@ -76,7 +76,7 @@ public class Shark extends Predator
      * @return double - the probability as a double.
      */
     protected double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
+        return parameter(Parameters.BREEDING_PROBABILITY, BREEDING_PROBABILITY);
     }
 
     /**
@@ -94,7 +94,7 @@ public class Shark extends Predator
      * @return int - the maximum food level.
      */
     protected int getMaxFoodLevel() {
-        return MAX_FOOD_LEVEL;
+        return parameter(Parameters.MAX_FOOD_LEVEL, MAX_FOOD_LEVEL);
     }
 
     /**
@@ -102,7 +102,7 @@ public class Shark extends Predator
      * @return int - the maximum age of this entity.
      */
     protected int getMaxAge() {
-        return MAX_AGE;
+        return parameter(Parameters.MAX_AGE, MAX_AGE);
     }
 
     /**
@@ -1,13 +1,17 @@
 import java.util.Random;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.awt.Color;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A simple predator-prey simulator, based on a rectangular field
  * containing rabbits and foxes.
  * 
+ * The simulator itself shows nothing: it runs without a display, and
+ * whatever wants to follow it - such as a SimulatorView - subscribes as a
+ * SimulatorListener.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29 (2)
  */
@@ -33,16 +37,50 @@ public class Simulator
 
     private static final int MAX_TERRAIN_HEIGHT = 5;
 
+    // Hunting modes: every predator searches for itself ...
+    public static final int HUNT_INDIVIDUALLY = 0;
+    // ... or they all read one map of prey distances built each step.
+    public static final int HUNT_SHARED_DISTANCES = 1;
+    // ... or they each search the occupancy bitboards of the field.
+    public static final int HUNT_BITBOARDS = 2;
+
+    // Catching rules: a predator catches the prey its hunt finds, however far away,
+    // so it never has a chase to keep ...
+    public static final int CATCH_ON_SIGHT = 0;
+    // ... or only a prey next to it, chasing the others along a path it keeps between steps.
+    public static final int CATCH_NEXT_TO = 1;
+
+    // Step engines: the actors act one after another ...
+    public static final int STEP_SEQUENTIALLY = 0;
+    // ... or tile by tile, on several threads (see TiledStepEngine).
+    public static final int STEP_IN_TILES = 1;
+    // ... or all plan on several threads, then act on their plans one after another (see IntentStepEngine).
+    public static final int STEP_IN_TWO_PHASES = 2;
+
+    // Aging modes: every animal gets older as it acts ...
+    public static final int AGE_WHEN_ACTING = 0;
+    // ... or all of them at once at the start of the step, in one pass over the AnimalStore.
+    public static final int AGE_IN_BATCH = 1;
+
+    // Plant modes: every plant is an actor of its own ...
+    public static final int PLANTS_AS_ACTORS = 0;
+    // ... or only a species id in the field, run by a PlantLayer.
+    public static final int PLANTS_IN_LAYER = 1;
+
     private boolean testing = false;
 
-    // List of animals in the field.
-    private List<Actor> actors;
+    // The actors in the field, in the order they act.
+    private ActorArena actors;
+    // The state of the animals of the current run.
+    private AnimalStore animalStore;
     // The current state of the field.
     private Field field;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
-    private SimulatorView view;
+    // Whoever follows the simulation, such as a graphical view of it.
+    private List<SimulatorListener> listeners;
+    // The statistics deciding whether the simulation is still viable.
+    private FieldStats stats;
     
     private DayNightCycle dnCycle;
 
@@ -52,10 +90,53 @@ public class Simulator
     
     private int currentWeather;
 
+    // The colours of the empty cells, shared by everything that draws the field.
+    private BackgroundPalette backgroundPalette;
+
+    // How the predators hunt.
+    private int huntingMode;
+    // The prey distances for HUNT_SHARED_DISTANCES.
+    private PreyDistanceField preyDistances;
+    // Which prey a predator can catch.
+    private int catchRule;
+    // The field and the weather the habitats of the predators were last worked out for.
+    private Field passableField;
+    private int passableWeather;
+    // How the actors are stepped.
+    private int stepMode;
+    // The engines for STEP_IN_TILES and STEP_IN_TWO_PHASES.
+    private TiledStepEngine tiledEngine;
+    private IntentStepEngine intentEngine;
+    // How the animals get older.
+    private int agingMode;
+    // How the plants of the next run are kept.
+    private int plantMode;
+    // Runs the plants of the current run, null when they are actors.
+    private PlantLayer plantLayer;
+    // Gives the seed of every run, one per reset.
+    private SplittableRandom runSeeds;
+    // The seed of the current run, which all the random streams of its steps are made from.
+    private long runSeed;
+    // The settings the species use instead of their own constants, if any.
+    private final Parameters parameters;
+
+    // The part of a step the simulator draws its own random numbers for
+    // (the step engines use the numbers of their tiles or actors).
+    private static final int SIMULATOR_STREAM = -1;
+
     private static final Random rand = Randomizer.getRandom();
 
+    /**
+     * Run a simulation without a display and print what is left in the field.
+     * The window is started with SimulatorView.main instead.
+     * @param args - the number of steps to run (4000 if not given).
+     */
     public static void main(String[] args) {
-        new Simulator();
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        Simulator simulator = new Simulator();
+        simulator.simulate(steps);
+        System.out.println("Step " + simulator.getStep() + ": "
+                           + simulator.getStats().getPopulationDetails(simulator.getField()));
     }
     
     /**
@@ -73,6 +154,32 @@ public class Simulator
      */
     public Simulator(int depth, int width)
     {
+        this(depth, width, Randomizer.getSeed());
+    }
+
+    /**
+     * Create a simulation field with the given size and seed. Two simulators
+     * with the same seed go through the same runs, even at the same time.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param seed The seed of the random numbers.
+     */
+    public Simulator(int depth, int width, long seed)
+    {
+        this(depth, width, seed, new Parameters());
+    }
+
+    /**
+     * Create a simulation field with the given size and seed, in which the
+     * species use the given parameters instead of their own constants.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param seed The seed of the random numbers.
+     * @param parameters The parameters of the species.
+     */
+    public Simulator(int depth, int width, long seed, Parameters parameters)
+    {
+        this.parameters = parameters;
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be greater than zero.");
             System.out.println("Using default values.");
@@ -80,25 +187,25 @@ public class Simulator
             width = DEFAULT_WIDTH;
         }
 
-        actors = new ArrayList<>();
+        runSeeds = new SplittableRandom(seed);
+        listeners = new CopyOnWriteArrayList<>();
+        actors = new ActorArena();
+        animalStore = new AnimalStore();
         field = new Field(depth, width);
         dnCycle = new DayNightCycle(this);
         weather = new Weather();
         continueSimulating = false;
         currentWeather = Weather.NORMAL;
+        backgroundPalette = new BackgroundPalette(depth);
+        huntingMode = HUNT_INDIVIDUALLY;
+        preyDistances = new PreyDistanceField();
+        catchRule = CATCH_ON_SIGHT;
+        stepMode = STEP_SEQUENTIALLY;
+        tiledEngine = new TiledStepEngine(ForkJoinPool.commonPool());
+        intentEngine = new IntentStepEngine(ForkJoinPool.commonPool());
+        agingMode = AGE_WHEN_ACTING;
+        plantMode = PLANTS_AS_ACTORS;
 
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width, this);
-        view.setColor(Seagull.class,Seagull.getClassColor());
-        view.setColor(Shark.class,Shark.getClassColor());
-        view.setColor(KillerWhale.class,KillerWhale.getClassColor());
-        view.setColor(Cod.class,Cod.getClassColor());
-        view.setColor(Mackerel.class,Mackerel.getClassColor());
-        view.setColor(Anchovy.class,Anchovy.getClassColor());
-        view.setColor(Algae.class,Algae.getClassColor());
-        view.setColor(Plankton.class,Plankton.getClassColor());
-        view.setColor(Rock.class,Rock.getClassColor());
-        view.setColor(Soil.class,Soil.getClassColor());
 
         // Setup a valid starting point.
         reset();
@@ -125,7 +232,7 @@ public class Simulator
     public void simulate(int numSteps)
     {
         startSimulation();
-        for(int step = 1; step <= numSteps && view.isViable(field); step++) {
+        for(int step = 1; step <= numSteps && isViable(); step++) {
             simulateOneStep();
             if(!continueSimulating) {
                 step = numSteps + 2;
@@ -135,6 +242,54 @@ public class Simulator
         }
     }
 
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable() {
+        return stats.isViable(field);
+    }
+
+    /**
+     * Returns the statistics of the field, counted again after every step when first asked for.
+     * @return FieldStats - the statistics.
+     */
+    public FieldStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the parameters the species of this simulation use.
+     * @return Parameters - the parameters.
+     */
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns where the animals of the current run keep their state.
+     * @return AnimalStore - the store.
+     */
+    public AnimalStore getAnimalStore() {
+        return animalStore;
+    }
+
+    /**
+     * Add a listener to be told when the simulation is reset and when a step ends.
+     * @param listener - SimulatorListener - the listener.
+     */
+    public void addListener(SimulatorListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop telling a listener about the simulation.
+     * @param listener - SimulatorListener - the listener.
+     */
+    public void removeListener(SimulatorListener listener) {
+        listeners.remove(listener);
+    }
+
     private void startSimulation() {
         continueSimulating = true;
     }   
@@ -151,73 +306,170 @@ public class Simulator
     public void simulateOneStep()
     {
         step++;
+        // The listeners are shown what changed during this step only.
+        field.clearChanges();
+        SplittableRandom previous = Randomizer.bind(Randomizer.newStream(runSeed, step, SIMULATOR_STREAM));
+        try {
+            currentWeather = weather.getWeather();
         
-        currentWeather = weather.getWeather();
-        
-        //System.out.println(weather.timeTillDecision + "- " + weatherNow);
+            //System.out.println(weather.timeTillDecision + "- " + weatherNow);
         
-        // Provide space for newborn animals.
-        List<Actor> newActors = new ArrayList<>();        
-        // Let all rabbits act.
-        //System.out.println(dnCycle.getPartOfDay());
-        for(Iterator<Actor> it = actors.iterator(); it.hasNext(); ) {
-            if(!continueSimulating) {
-                break;
+            // The animals that die of age or hunger are gone before the predators look for prey.
+            if(agingMode == AGE_IN_BATCH && continueSimulating) {
+                animalStore.ageAll();
             }
-            Actor actor = it.next();
-            if(actor instanceof Animal) {
-                Animal animal = (Animal) actor;
-                if(!animal.isAlive()) {
-                    it.remove();
-                }else {
-                    actor.act(newActors);
+
+            if(huntingMode == HUNT_SHARED_DISTANCES) {
+                updatePassable();
+                preyDistances.rebuild(field, getLargestHuntingRange());
+            }
+            else if(huntingMode == HUNT_BITBOARDS) {
+                updatePassable();
+            }
+
+            if(plantLayer != null && continueSimulating) {
+                plantLayer.step(field, this);
+            }
+
+            // The shared distances are updated as prey are eaten, which only works one actor at a time.
+            // Too narrow a field has too few tiles to run any of them at the same time.
+            if(stepMode == STEP_IN_TILES && huntingMode != HUNT_SHARED_DISTANCES
+               && TiledStepEngine.isWorthTiling(field.getWidth(), getLargestHuntingRange())) {
+                if(continueSimulating) {
+                    tiledEngine.step(actors, field, runSeed, step, getLargestHuntingRange());
                 }
-            }else if ( actor instanceof Plant ) {
-                Plant plant = (Plant) actor;
-                if ( !plant.isAlive() ) {
-                    it.remove();
-                }else {
-                    actor.act(newActors);
+            }
+            else if(stepMode == STEP_IN_TWO_PHASES) {
+                if(continueSimulating) {
+                    intentEngine.step(actors, runSeed, step);
                 }
-            }else {
-                actor.act(newActors);
+            }
+            else {
+                stepSequentially();
+            }
+
+            if(continueSimulating) {
+                // The algae of the soil come after everything else, and so start growing next step.
+                Soil.spawnAlgaeOnTerrain(field, this, actors.newborns());
+            }
+        }
+        finally {
+            Randomizer.bind(previous);
+        }
+        // The dead are dropped all at once, and the newborns act from the next step.
+        actors.compact();
+        backgroundPalette.update(currentWeather, dnCycle.getCurrentTimeInt());
+        assert field.populationsMatchRecount() : "The populations kept by the field are wrong after step " + step;
+        assert field.bitboardsMatchRecount() : "The bitboards kept by the field are wrong after step " + step;
+        assert field.rootsMatchWalk() : "The rooted algae kept by the field are wrong after step " + step;
+        stats.reset();
+        for(SimulatorListener listener : listeners) {
+            listener.stepCompleted(this, step, field);
+        }
+    }
+
+    /**
+     * Let the actors act one after another, in their order. The dead are
+     * unlinked from the arena as they are found, and the newborns go in
+     * after the last actor, so they only act from the next step.
+     */
+    private void stepSequentially()
+    {
+        int count = actors.size();
+        for(int slot = 0; slot < count; slot++) {
+            if(!continueSimulating) {
+                break;
+            }
+            if(!actors.isLinked(slot)) {
+                continue;
+            }
+            Actor actor = actors.get(slot);
+            if(!ActorArena.isAlive(actor)) {
+                actors.unlink(slot);
+            }
+            else {
+                actor.act(actors.newborns());
             }
         }
+    }
 
-        // Add the newly born foxes and rabbits to the main lists.
-        actors.addAll(newActors);
+    /**
+     * Work out the cells in the habitat of each predator species, for the
+     * bitboard hunt (see BitboardHunt) and for the reach of the shared
+     * distances (see PreyDistanceField). A habitat only depends on the field
+     * and the weather, so this is only done again when one of them changes.
+     */
+    private void updatePassable() {
+        if(passableField == field && passableWeather == currentWeather) {
+            return;
+        }
+        field.updatePassable(Species.SEAGULL, l -> Seagull.isInHabitatStatic(l, this));
+        field.updatePassable(Species.SHARK, l -> Shark.isInHabitatStatic(l, this));
+        field.updatePassable(Species.KILLER_WHALE, l -> KillerWhale.isInHabitatStatic(l, this));
+        passableField = field;
+        passableWeather = currentWeather;
+    }
 
-        view.showStatus(step, field);
+    /**
+     * Return the largest hunting range of the predators in the simulation.
+     * @return int - the range, 0 if there are no predators.
+     */
+    private int getLargestHuntingRange() {
+        int range = 0;
+        for(int slot = 0; slot < actors.size(); slot++) {
+            Actor actor = actors.get(slot);
+            if(actor instanceof Predator && actors.isLinked(slot)) {
+                range = Math.max(range, ((Predator) actor).getMaxHuntingRange());
+            }
+        }
+        return range;
     }
 
     /**
      * Reset the simulation to a starting position.
+     * Every reset starts a new run, with the next seed given by the seed of the simulator.
      */
     public void reset()
     {
         step = 0;
         actors.clear();
+        animalStore = new AnimalStore();
         field = new Field(field.getDepth(), field.getWidth());
         continueSimulating = false;
-        populate(testing);
-        view.resetStats();
+        runSeed = runSeeds.nextLong();
+        plantLayer = plantMode == PLANTS_IN_LAYER ? new PlantLayer() : null;
+        SplittableRandom previous = Randomizer.bind(Randomizer.newStream(runSeed, step, SIMULATOR_STREAM));
+        try {
+            populate(testing);
+        }
+        finally {
+            Randomizer.bind(previous);
+        }
+        // The actors placed are where the first step starts from, not its newborns.
+        actors.compact();
+        stats = new FieldStats();
+        stats.reset();
+        backgroundPalette.update(currentWeather, dnCycle.getCurrentTimeInt());
         //System.out.println(field.getObjectAt(2, 2).toString());
-        // Show the starting state in the view.
-        view.showStatus(step, field);
+        // Show the starting state to the listeners.
+        for(SimulatorListener listener : listeners) {
+            listener.simulationReset(this, field);
+        }
     }
 
+    /**
+     * Lay the terrain at the bottom of the field. It is kept as species ids in the field
+     * (see Field.placeTerrain()) and is never an actor: rock does nothing, and the algae of
+     * the soil are spawned for all of it at once (see Soil.spawnAlgaeOnTerrain()).
+     */
     private void generateTerrain() {
         for (int col = 0 ; col < field.getWidth() ; col ++ ) {
             int colHeight = rand.nextInt(MAX_TERRAIN_HEIGHT) + 1;
             for ( int row = field.getDepth() - 1 ; row >= field.getDepth() - colHeight ; row -- ) {
-                if (rand.nextDouble() <= ROCK_CREATION_PROBABILITY) {
-                    Location location = new Location(row,col);
-                    Rock rock = new Rock(field,location, this);
-                    actors.add(rock);
+                if (rand.nextDouble() <= creationProbability(Species.ROCK, ROCK_CREATION_PROBABILITY)) {
+                    field.placeTerrain(field.indexOf(row, col), Species.ROCK);
                 }else {
-                    Location location = new Location(row,col);
-                    Soil soil = new Soil(field,location, this);
-                    actors.add(soil);
+                    field.placeTerrain(field.indexOf(row, col), Species.SOIL);
                 }
             }
         }
@@ -242,22 +494,26 @@ public class Simulator
         for (int row = 0 ; row < field.getDepth() ; row ++ ) {
             for (int col = 0 ; col < field.getWidth() ; col ++ ) {
                 if ( field.getObjectAt(row,col) == null ) {
-                    Location currentLocation = new Location(row,col);
+                    Location currentLocation = field.getLocation(row,col);
                     int depth = field.getDepth();
                     Actor actor = null;
-                    if ( rand.nextDouble() <= KILLERWHALE_CREATION_PROBABILITY && KillerWhale.isInHabitatStatic(currentLocation,this)){
+                    if ( rand.nextDouble() <= creationProbability(Species.KILLER_WHALE, KILLERWHALE_CREATION_PROBABILITY) && KillerWhale.isInHabitatStatic(currentLocation,this)){
                         actor = new KillerWhale(true,field,currentLocation, this);
-                    }else if ( rand.nextDouble() <= SHARK_CREATION_PROBABILITY && Shark.isInHabitatStatic(currentLocation,this)) {
+                    }else if ( rand.nextDouble() <= creationProbability(Species.SHARK, SHARK_CREATION_PROBABILITY) && Shark.isInHabitatStatic(currentLocation,this)) {
                         actor = new Shark(true,field,currentLocation, this);
-                    }else if ( rand.nextDouble() <= SEAGULL_CREATION_PROBABILITY && Seagull.isInHabitatStatic(currentLocation,this)) {
+                    }else if ( rand.nextDouble() <= creationProbability(Species.SEAGULL, SEAGULL_CREATION_PROBABILITY) && Seagull.isInHabitatStatic(currentLocation,this)) {
                         actor = new Seagull(true,field,currentLocation, this);
-                    }else if ( rand.nextDouble() <= COD_CREATION_PROBABILITY && Cod.isInHabitatStatic(currentLocation,this)) {
+                    }else if ( rand.nextDouble() <= creationProbability(Species.COD, COD_CREATION_PROBABILITY) && Cod.isInHabitatStatic(currentLocation,this)) {
                         actor = new Cod(true,field,currentLocation, this);
-                    }else if ( rand.nextDouble() <= MACKEREL_CREATION_PROBABILITY && Mackerel.isInHabitatStatic(currentLocation,this)) {
+                    }else if ( rand.nextDouble() <= creationProbability(Species.MACKEREL, MACKEREL_CREATION_PROBABILITY) && Mackerel.isInHabitatStatic(currentLocation,this)) {
                         actor = new Mackerel(true,field,currentLocation, this);
-                    }else if ( rand.nextDouble() <= PLANKTON_CREATION_PROBABILITY && Plankton.isInHabitatStatic(currentLocation,this)) {
-                        actor = new Plankton(field,currentLocation, this);
-                    }else if ( rand.nextDouble() <= ANCHOVY_CREATION_PROBABILITY && Anchovy.isInHabitatStatic(currentLocation,this)) {
+                    }else if ( rand.nextDouble() <= creationProbability(Species.PLANKTON, PLANKTON_CREATION_PROBABILITY) && Plankton.isInHabitatStatic(currentLocation,this)) {
+                        if (plantLayer != null) {
+                            field.placePlant(field.indexOf(currentLocation), Species.PLANKTON);
+                        }else {
+                            actor = new Plankton(field,currentLocation, this);
+                        }
+                    }else if ( rand.nextDouble() <= creationProbability(Species.ANCHOVY, ANCHOVY_CREATION_PROBABILITY) && Anchovy.isInHabitatStatic(currentLocation,this)) {
                         actor = new Anchovy(true,field,currentLocation, this); // Ok
                     }
                     if ( actor != null ) {
@@ -268,6 +524,13 @@ public class Simulator
         }
     }
 
+    /**
+     * Returns the chance of a species being placed in a cell at the start.
+     */
+    private double creationProbability(byte species, double defaultProbability) {
+        return parameters.get(species, Parameters.CREATION_PROBABILITY, defaultProbability);
+    }
+
     /**
      * Pause for a given time.
      * @param millisec  The time to pause for, in milliseconds
@@ -290,6 +553,15 @@ public class Simulator
         return dnCycle;
     }
     
+    /**
+     * Returns the colours of the empty cells of each row, as they are for
+     * the current weather and time of day.
+     * @return BackgroundPalette - the colours, shared by all the views of the field.
+     */
+    public BackgroundPalette getBackgroundPalette() {
+        return backgroundPalette;
+    }
+
     /**
      * Returns the current weather.
      * @return int - currentWeather - the weather constant to be returned.
@@ -298,6 +570,131 @@ public class Simulator
         return currentWeather;
     }
     
+    /**
+     * Returns how the predators hunt.
+     * @return int - HUNT_INDIVIDUALLY, HUNT_SHARED_DISTANCES or HUNT_BITBOARDS.
+     */
+    public int getHuntingMode() {
+        return huntingMode;
+    }
+
+    /**
+     * Choose how the predators hunt: each with its own search (the default),
+     * or all reading one map of prey distances built at the start of each step.
+     * @param huntingMode - HUNT_INDIVIDUALLY, HUNT_SHARED_DISTANCES or HUNT_BITBOARDS.
+     */
+    public void setHuntingMode(int huntingMode) {
+        this.huntingMode = huntingMode;
+    }
+
+    /**
+     * Returns which prey a predator can catch.
+     * @return int - CATCH_ON_SIGHT or CATCH_NEXT_TO.
+     */
+    public int getCatchRule() {
+        return catchRule;
+    }
+
+    /**
+     * Choose which prey a predator can catch: any prey its hunt finds (the default), or
+     * only a prey next to it. With CATCH_NEXT_TO a predator chases a prey further away,
+     * one cell a step, and follows the path it worked out as long as it holds instead of
+     * searching again (see Predator.getReplansAvoided()). With the default rule there is
+     * never a chase left over to follow, so every hunt is a new search and no search is
+     * saved: keeping chases needs CATCH_NEXT_TO.
+     * @param catchRule - CATCH_ON_SIGHT or CATCH_NEXT_TO.
+     */
+    public void setCatchRule(int catchRule) {
+        this.catchRule = catchRule;
+    }
+
+    /**
+     * Returns how the actors are stepped.
+     * @return int - STEP_SEQUENTIALLY, STEP_IN_TILES or STEP_IN_TWO_PHASES.
+     */
+    public int getStepMode() {
+        return stepMode;
+    }
+
+    /**
+     * Choose how the actors are stepped: one after another (the default), tile by tile
+     * on several threads, or in two phases - all planning at once against the field of the
+     * last step, then carrying out their plans in order. The tiles are only used when the
+     * predators do not hunt with HUNT_SHARED_DISTANCES, and when the field is wide enough
+     * for each of the two phases to have two tiles (see TiledStepEngine.isWorthTiling()) -
+     * more than 384 columns for the usual hunting ranges, so not the default field of 200;
+     * otherwise the actors act one after another. With the same seed every mode gives
+     * the same results on every run, though not the same results as each other.
+     * @param stepMode - STEP_SEQUENTIALLY, STEP_IN_TILES or STEP_IN_TWO_PHASES.
+     */
+    public void setStepMode(int stepMode) {
+        this.stepMode = stepMode;
+    }
+
+    /**
+     * Choose the threads the tiles of STEP_IN_TILES and the plans of STEP_IN_TWO_PHASES
+     * run on. By default they run on the common pool.
+     * @param pool - ForkJoinPool - the threads.
+     */
+    public void setStepPool(ForkJoinPool pool) {
+        tiledEngine = new TiledStepEngine(pool);
+        intentEngine = new IntentStepEngine(pool);
+    }
+
+    /**
+     * Returns how the animals get older.
+     * @return int - AGE_WHEN_ACTING or AGE_IN_BATCH.
+     */
+    public int getAgingMode() {
+        return agingMode;
+    }
+
+    /**
+     * Choose how the animals get older: each as it acts (the default), or all at once at
+     * the start of the step, in one pass over the AnimalStore, which also makes the
+     * predators hungrier. An animal that dies of age or hunger then dies before any other
+     * acts, so it can no longer be eaten in that step.
+     * @param agingMode - AGE_WHEN_ACTING or AGE_IN_BATCH.
+     */
+    public void setAgingMode(int agingMode) {
+        this.agingMode = agingMode;
+    }
+
+    /**
+     * Returns how the plants of the next run are kept.
+     * @return int - PLANTS_AS_ACTORS or PLANTS_IN_LAYER.
+     */
+    public int getPlantMode() {
+        return plantMode;
+    }
+
+    /**
+     * Choose how the plants are kept: each as an Algae or Plankton actor (the default), or
+     * only as the species id of its cell, run by a PlantLayer, which costs a byte a plant
+     * instead of an object. The plants of a run are all kept the same way, so the mode takes
+     * effect at the next reset.
+     * @param plantMode - PLANTS_AS_ACTORS or PLANTS_IN_LAYER.
+     */
+    public void setPlantMode(int plantMode) {
+        this.plantMode = plantMode;
+    }
+
+    /**
+     * Returns the plant layer of the current run.
+     * @return PlantLayer - the layer, or null if the plants of the run are actors.
+     */
+    public PlantLayer getPlantLayer() {
+        return plantLayer;
+    }
+
+    /**
+     * Returns the map of prey distances used with HUNT_SHARED_DISTANCES.
+     * @return PreyDistanceField - the map.
+     */
+    public PreyDistanceField getPreyDistances() {
+        return preyDistances;
+    }
+
     /**
      * Returns the field of the simulator.
      * @return field Field - the field to be returned.
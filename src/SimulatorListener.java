@@ -0,0 +1,27 @@
+/**
+ * Something that wants to know how a simulation goes - a window showing
+ * it, a file of statistics, an exporter of pictures. Listeners are added
+ * to a Simulator with addListener() and are told, on the thread running
+ * the simulation, whenever the simulation starts again or a step ends.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public interface SimulatorListener
+{
+    /**
+     * The simulation has been set back to a new starting position.
+     * @param simulator The simulator.
+     * @param field The new field.
+     */
+    void simulationReset(Simulator simulator, Field field);
+
+    /**
+     * A step of the simulation has ended.
+     * @param simulator The simulator.
+     * @param step The number of the step.
+     * @param field The field as the step left it; Field.getChangedBits()
+     *              tells which cells the step changed.
+     */
+    void stepCompleted(Simulator simulator, int step, Field field);
+}
@@ -1,6 +1,12 @@
 
 
 import static org.junit.Assert.*;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,5 +51,231 @@ public class SimulatorTest
     {
         Simulator simulato1 = new Simulator();
     }
+
+    /**
+     * The hunting engine must make the same decisions as the recursive
+     * hunt it replaced: for every predator of a seeded field, drawing the
+     * same random numbers, the same prey and the same first step.
+     */
+    @Test
+    public void huntingEngineMatchesRecursiveHunt()
+    {
+        Simulator sim = new Simulator(80, 120, 42);
+        sim.simulate(30);
+        Field field = sim.getField();
+        HuntingEngine engine = new HuntingEngine();
+        int hunts = 0;
+        int caught = 0;
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                Object obj = field.getObjectAt(row, col);
+                if(!(obj instanceof Predator)) {
+                    continue;
+                }
+                Predator predator = (Predator) obj;
+                Location here = field.getLocation(row, col);
+                int range = predator.getMaxHuntingRange();
+
+                SplittableRandom previous = Randomizer.bind(Randomizer.newStream(42, hunts, 0));
+                try {
+                    recursivePrey = null;
+                    Queue<Location> huntQueue = new LinkedList<>();
+                    int[][] fieldMatrix = new int[field.getDepth()][field.getWidth()];
+                    huntQueue.add(here);
+                    fieldMatrix[row][col] = 1;
+                    Location expected = recursiveHunt(predator, field, 0, huntQueue, fieldMatrix);
+
+                    Randomizer.bind(Randomizer.newStream(42, hunts, 0));
+                    int move = engine.search(predator, field, field.indexOf(here), range);
+                    if(expected == null) {
+                        assertEquals(HuntingEngine.NONE, move);
+                        assertNull(engine.getPrey());
+                    }
+                    else {
+                        assertEquals(expected, field.locationOf(move));
+                        assertSame(recursivePrey, engine.getPrey());
+                        caught++;
+                    }
+                }
+                finally {
+                    Randomizer.bind(previous);
+                }
+                hunts++;
+            }
+        }
+        assertTrue("No predator was left to hunt", hunts > 0);
+        assertTrue("No predator found a prey", caught > 0);
+    }
+
+    /**
+     * Tiles that run at the same time must not write the same longs of the
+     * field's bitboards: after every step on several threads, the bitboards
+     * and the populations kept by the field must match a recount.
+     */
+    @Test
+    public void tiledStepsKeepBitboardsRight()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int mode = Simulator.HUNT_INDIVIDUALLY; mode <= Simulator.HUNT_BITBOARDS; mode += 2) {
+                Simulator sim = new Simulator(60, 520, 42);
+                sim.setStepPool(pool);
+                sim.setStepMode(Simulator.STEP_IN_TILES);
+                sim.setHuntingMode(mode);
+                for (int step = 0; step < 40; step++) {
+                    sim.simulate(1);
+                    assertTrue("Bitboards wrong after step " + step, sim.getField().bitboardsMatchRecount());
+                    assertTrue("Populations wrong after step " + step, sim.getField().populationsMatchRecount());
+                }
+            }
+        }finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Randomizer.reset() restarts the stream a thread draws from while no
+     * stream is bound, so the same numbers come again.
+     */
+    @Test
+    public void resetRepeatsTheDefaultStream()
+    {
+        SplittableRandom bound = Randomizer.bind(null);
+        try {
+            Random rand = Randomizer.getRandom();
+            Randomizer.reset();
+            int[] first = new int[20];
+            for (int i = 0; i < first.length; i++) {
+                first[i] = rand.nextInt(1000);
+            }
+            Randomizer.reset();
+            for (int i = 0; i < first.length; i++) {
+                assertEquals("Draw " + i + " after reset", first[i], rand.nextInt(1000));
+            }
+        }finally {
+            Randomizer.bind(bound);
+        }
+    }
+
+    /**
+     * The newborns of an arena are a list of the actors added since the
+     * last compact(): they can be counted, read and iterated, and adding to
+     * the list adds to the arena.
+     */
+    @Test
+    public void newbornsListTheActorsAddedSinceCompact()
+    {
+        Simulator sim = new Simulator(20, 30, 1);
+        Field field = sim.getField();
+        ActorArena arena = new ActorArena();
+        arena.add(new Cod(false, field, field.getLocation(0, 0), sim));
+        arena.compact();
+        List<Actor> newborns = arena.newborns();
+        assertTrue(newborns.isEmpty());
+
+        Cod newborn = new Cod(false, field, field.getLocation(0, 1), sim);
+        newborns.add(newborn);
+        assertEquals(1, newborns.size());
+        assertSame(newborn, newborns.get(0));
+        assertSame(newborn, newborns.iterator().next());
+        assertEquals(2, arena.size());
+        assertSame(newborn, arena.get(1));
+
+        arena.compact();
+        assertTrue(newborns.isEmpty());
+        assertEquals(2, arena.size());
+    }
+
+    /**
+     * Predators that may only catch a prey next to them chase it along the
+     * path they worked out, and go on with that path on later steps instead
+     * of searching again.
+     */
+    @Test
+    public void chasesAreFollowedWhenCatchingNextTo()
+    {
+        Simulator sim = new Simulator(80, 120, 42);
+        sim.setCatchRule(Simulator.CATCH_NEXT_TO);
+        long before = Predator.getReplansAvoided();
+        sim.simulate(50);
+        assertTrue("No chase was followed", Predator.getReplansAvoided() > before);
+    }
+
+    // The prey found by recursiveHunt().
+    private Prey recursivePrey;
+
+    /**
+     * The recursive hunt Predator used before HuntingEngine, without the
+     * catching: it returns the first step and sets recursivePrey.
+     */
+    private Location recursiveHunt(Predator predator, Field field, int currentRange,
+                                   Queue<Location> huntQueue, int[][] fieldMatrix)
+    {
+        if (huntQueue.isEmpty() || currentRange >= predator.getMaxHuntingRange()) {
+            return null;
+        }
+        currentRange ++;
+        Location currentLocation = huntQueue.remove();
+        List<Location> adjacent = field.adjacentLocations(currentLocation);
+        for (Location l : adjacent) {
+            if (predator.isInHabitat(l) && fieldMatrix[l.getRow()][l.getCol()] == 0){
+                Object obj = field.getObjectAt(l);
+                if (obj == null) {
+                    huntQueue.add(l);
+                    fieldMatrix[l.getRow()][l.getCol()] = fieldMatrix[currentLocation.getRow()][currentLocation.getCol()] + 1;
+                }else if (obj instanceof Prey) {
+                    Prey prey = (Prey) obj;
+                    if (prey.isAlive()) {
+                        fieldMatrix[l.getRow()][l.getCol()] = fieldMatrix[currentLocation.getRow()][currentLocation.getCol()] + 1;
+                        recursivePrey = prey;
+                        return findPrey(field, fieldMatrix, prey.getLocation());
+                    }else {
+                        huntQueue.add(l);
+                        fieldMatrix[l.getRow()][l.getCol()] = fieldMatrix[currentLocation.getRow()][currentLocation.getCol()] + 1;
+                    }
+                }else {
+                    fieldMatrix[l.getRow()][l.getCol()] = -1;
+                }
+            }
+        }
+        return recursiveHunt(predator, field, currentRange, huntQueue, fieldMatrix);
+    }
+
+    /**
+     * The walk back from the prey of the recursive hunt.
+     */
+    private Location findPrey(Field field, int[][] fieldMatrix, Location currentLocation)
+    {
+        int row = currentLocation.getRow();
+        int col = currentLocation.getCol();
+        int val = fieldMatrix[row][col];
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        while (val > 2) {
+            if (row-1 >= 0 && fieldMatrix[row-1][col] == val - 1) {
+                row--;
+            }else if (col-1 >= 0 && fieldMatrix[row][col-1] == val - 1) {
+                col--;
+            }else if (col+1 < width && fieldMatrix[row][col+1] == val - 1) {
+                col++;
+            }else if (row+1 < depth && fieldMatrix[row+1][col] == val - 1) {
+                row++;
+            }else if (row+1 < depth && col+1 < width && fieldMatrix[row+1][col+1] == val - 1) {
+                row++;
+                col++;
+            }else if (row+1 < depth && col-1 >= 0 && fieldMatrix[row+1][col-1] == val - 1) {
+                row++;
+                col--;
+            }else if (row-1 >= 0 && col+1 < width && fieldMatrix[row-1][col+1] == val - 1) {
+                row--;
+                col++;
+            }else if (row-1 >= 0 && col-1 >= 0 && fieldMatrix[row-1][col-1] == val - 1) {
+                row--;
+                col--;
+            }
+            val--;
+        }
+        return field.getLocation(row, col);
+    }
 }
 
@@ -2,7 +2,6 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.border.*;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -14,32 +13,33 @@ import java.util.ArrayList;
  * Colors for each type of species can be defined using the
  * setColor method.
  * 
+ * The view never waits for the simulation, nor the simulation for the
+ * view. A FrameBuffer follows the Simulator as one of its listeners and
+ * publishes a snapshot of the field at the end of every step; a Swing
+ * timer takes the latest snapshot a given number of times a second and
+ * draws it on the event dispatch thread. Snapshots published faster than
+ * that are dropped, and counted.
+ * 
  * @author David J. Barnes and Michael Kölling
  *                  extension by Luca-Dorin Anton and Horia Pavel
  * @version 2016.02.29
  */
 public class SimulatorView extends JFrame
 {
+    // How many frames a second are drawn unless told otherwise.
+    private static final int DEFAULT_FRAMES_PER_SECOND = 30;
+
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
 
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
-    // Ocean colors
-    private static final Color SURFACE_COLOR = new Color(128,179,255);
-    private static final Color OCEAN_COLOR = new Color(0,61,153);
-    // Sky colors.
-    private static final Color MIDNIGHT_COLOR = new Color(7, 26, 76);
-    private static final Color MORNING_COLOR = new Color(237,181,28);
-    private static final Color NOON_COLOR = new Color(226, 253,255);
-    private static final Color EVENING_COLOR = new Color(226,68,0);
-    // The water surface level when the weather is normal.
-    private static final int NORMAL_WATER_SURFACE_LEVEL = 5;
     // Defining the labels along with the prefixes.
     private final String STEP_PREFIX = "Step: ";
     private final String TIME_PREFIX = "Time: ";
     private final String WEATHER_PREFIX = "Weather: ";
     private final String DAY_PREFIX = "Day No.: ";
+    private final String DROPPED_PREFIX = "Dropped frames: ";
     private JLabel stepLabel, statusLabel, infoLabel;
     
     private JPanel statsPane; // Status pane in the right of the simulator.
@@ -50,10 +50,20 @@ public class SimulatorView extends JFrame
 
     private Simulator simulator;
 
-    // A map for storing colors for participants in the simulation
-    private Map<Class, Color> colors;
-    // A statistics object computing and storing simulation information
-    private FieldStats stats;
+    // The frames published by the simulation, waiting to be drawn.
+    private FrameBuffer frames;
+    // Draws the latest frame on the event dispatch thread.
+    private Timer frameTimer;
+
+    /**
+     * Open a window on a new simulation of the default size.
+     * @param args - not used.
+     */
+    public static void main(String[] args) {
+        Simulator simulator = new Simulator();
+        Field field = simulator.getField();
+        new SimulatorView(field.getDepth(), field.getWidth(), simulator);
+    }
 
     /**
      * Create a view of the given width and height.
@@ -66,8 +76,6 @@ public class SimulatorView extends JFrame
     {
         // Initialize the functional needs of this class.
         this.simulator = simulator;
-        stats = new FieldStats();
-        colors = new LinkedHashMap<>();
         labelMap = new HashMap<>();
 
         // Set the title and initialize the default status of the labels.
@@ -183,6 +191,25 @@ public class SimulatorView extends JFrame
         setLocation(100, 50);
         pack();
         setVisible(true);
+
+        // The colors of the species.
+        setColor(Seagull.class,Seagull.getClassColor());
+        setColor(Shark.class,Shark.getClassColor());
+        setColor(KillerWhale.class,KillerWhale.getClassColor());
+        setColor(Cod.class,Cod.getClassColor());
+        setColor(Mackerel.class,Mackerel.getClassColor());
+        setColor(Anchovy.class,Anchovy.getClassColor());
+        setColor(Algae.class,Algae.getClassColor());
+        setColor(Plankton.class,Plankton.getClassColor());
+        setColor(Rock.class,Rock.getClassColor());
+        setColor(Soil.class,Soil.getClassColor());
+
+        // Follow the simulation, starting from where it is now.
+        frames = new FrameBuffer();
+        simulator.addListener(frames);
+        frames.publish(simulator, simulator.getField());
+        frameTimer = new Timer(1000 / DEFAULT_FRAMES_PER_SECOND, e -> drawLatestFrame());
+        frameTimer.start();
     }
 
     /**
@@ -205,220 +232,136 @@ public class SimulatorView extends JFrame
      */
     public void setColor(Class animalClass, Color color)
     {
-        colors.put(animalClass, color);
+        byte id = Species.idOf(animalClass);
+        if(id != Species.UNKNOWN) {
+            fieldView.renderer.setColor(id, color);
+        }
     }
 
     /**
-     * Display a short information label at the top of the window.
+     * Set whether the field is drawn on several threads, a band of rows each.
+     * @param parallel true to draw on several threads.
      */
-    public void setInfoText(String text)
+    public void setParallelRendering(boolean parallel)
     {
-        infoLabel.setText(text);
+        fieldView.renderer.setParallel(parallel);
     }
 
     /**
-     * @return The color to be used for a given class of animal.
+     * Set how many times a second the latest frame is drawn.
+     * @param framesPerSecond - int - the number of frames, at least 1.
      */
-    private Color getColor(Class animalClass)
+    public void setFramesPerSecond(int framesPerSecond)
     {
-        Color col = colors.get(animalClass);
-        if(col == null) {
-            // no color defined for this class
-            return UNKNOWN_COLOR;
-        }
-        else {
-            return col;
-        }
+        frameTimer.setDelay(1000 / Math.max(framesPerSecond, 1));
     }
 
     /**
-     * Show the current status of the field.
-     * @param step Which iteration step it is.
-     * @param field The field whose status is to be displayed.
+     * Returns how many frames were published but never drawn, because a
+     * newer one came before the timer did.
+     * @return long - the number of dropped frames.
      */
-    public void showStatus(int step, Field field)
+    public long getDroppedFrames()
     {
+        return frames.getDroppedFrames();
+    }
+
+    /**
+     * Display a short information label at the top of the window.
+     */
+    public void setInfoText(String text)
+    {
+        infoLabel.setText(text);
+    }
+
+    /**
+     * Draw the latest frame published, if there is a new one. Called by
+     * the timer on the event dispatch thread.
+     */
+    private void drawLatestFrame()
+    {
+        FrameSnapshot frame = frames.takeLatest();
+        if(frame == null) {
+            return;
+        }
         if(!isVisible()) {
             setVisible(true);
         }
 
-        stepLabel.setText(STEP_PREFIX + step);
-        stats.reset();
+        stepLabel.setText(STEP_PREFIX + frame.getStep());
 
         fieldView.preparePaint();
 
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
-                }
-                else {
-                    fieldView.drawMark(col, row, getBackgroundColor(row,field));
-                }
-            }
-        }
-        stats.countFinished();
-        // Creating labels.
-        if(labelMap.isEmpty()) {
-            createLabels();
-        } else {
-            updateLabels();
+        fieldView.render(frame);
+        // A new field starts the labels again.
+        if(frame.isNewField()) {
+            labelMap.clear();
+            statsPane.removeAll();
         }
+        updateLabels(frame);
         String weather; // Creating weather text.
-        if(simulator.getCurrentWeather() == Weather.DRY) {
+        if(frame.getWeather() == Weather.DRY) {
             weather = "DRY";
-        } else if(simulator.getCurrentWeather() == Weather.NORMAL) {
+        } else if(frame.getWeather() == Weather.NORMAL) {
             weather = "NORMAL";
         } else {
             weather = "RAINING";
         }
 
         String partOfDay; // Creating partOfDay text.
-        if(simulator.getDayNightCycle().getPartOfDay() == DayNightCycle.DAY) {
+        if(frame.getPartOfDay() == DayNightCycle.DAY) {
             partOfDay = "~Day~";
         } else {
             partOfDay = "~Night~";
         }
         // Setting up the bottom label.
-        statusLabel.setText(" | " + TIME_PREFIX + simulator.getDayNightCycle().getCurrentTimeString() +  
-            " | " + WEATHER_PREFIX + weather + " | " + DAY_PREFIX + simulator.getDayNightCycle().getCurrentDay()
-            +" | " + partOfDay + " | ");
-        fieldView.repaint();
-    }
-
-    /**
-     * Private method for creating labels and initialize them with the correct values.
-     */
-    private void createLabels() {
-        labelMap.clear();
-        statsPane.removeAll();
-
-        Map<Class, Counter> map = stats.getFieldStats(simulator.getField());
-        for (Class key : map.keySet()) {
-            Counter c = map.get(key);
-            JTextArea label = new JTextArea(" " + c.getName() + "\n---------------\n" + c.getCount());
-            label.setEditable(false);  
-            label.setCursor(null);  
-            label.setOpaque(false);  
-            label.setFocusable(false);
-            label.setLineWrap(true);
-            label.setWrapStyleWord(true);
-
-            labelMap.put(key, label);
-            statsPane.add(label);
-            
-            // Using borders to facilitate their display.
-            // For instance if a certaint specie falls below 500 population the border will
-            // be orange.
-            if(c.getCount() == 0) {
-                label.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.BLACK));
-            } else if (c.getCount() <= 99) {
-                label.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.RED));
-            } else if(c.getCount() <= 499) {
-                label.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.ORANGE));
-            } else {
-                label.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.GREEN));
-            }
-        }
+        statusLabel.setText(" | " + TIME_PREFIX + frame.getTime() +
+            " | " + WEATHER_PREFIX + weather + " | " + DAY_PREFIX + frame.getDay()
+            +" | " + partOfDay + " | " + DROPPED_PREFIX + frames.getDroppedFrames() + " | ");
     }
 
     /** 
      * Private method for updating the labels during the simulations.
+     * A label is made for a species once it is first seen.
+     * @param frame FrameSnapshot - the frame whose populations are shown.
      */
-    private void updateLabels() {
-        Map<Class, Counter> map = stats.getFieldStats(simulator.getField());
-        if(map.size() != labelMap.size()) {
-            createLabels(); // If a label shows up -- recreate the labels to display the new label.
-        }
-
-        for (Class key : map.keySet()) {
-            Counter c = map.get(key);
+    private void updateLabels(FrameSnapshot frame) {
+        for (byte id = 0; id < Species.COUNT; id++) {
+            Class key = Species.classOf(id);
+            if(key == null) {
+                continue;
+            }
+            int count = frame.getPopulation(id);
             JTextArea t = labelMap.get(key);
-            if(c != null) {
-                t.setText(" " + c.getName() + "\n---------------\n" + c.getCount());
-                if(c.getCount() == 0) {
-                    t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.BLACK));
-                } else if (c.getCount() <= 99) {
-                    t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.RED));
-                } else if(c.getCount() <= 499) {
-                    t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.ORANGE));
-                } else {
-                    t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.GREEN));
+            if(t == null) {
+                if(count == 0) {
+                    continue;
                 }
-            } else {
-                t.setText(" " + key.toString() + "\n---------------\n0");
-                t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.BLACK));
+                t = new JTextArea();
+                t.setEditable(false);  
+                t.setCursor(null);  
+                t.setOpaque(false);  
+                t.setFocusable(false);
+                t.setLineWrap(true);
+                t.setWrapStyleWord(true);
+                labelMap.put(key, t);
+                statsPane.add(t);
+                statsPane.revalidate();
             }
-
-        }
-    }
-    
-    /**
-     * This method resets the status of the field.
-     */
-    public void resetStats() {
-        stats = new FieldStats();   
-    }
-
-    /**
-     * This method calculates the gradient of the background in order to display a transition between night and day
-     * and between surface water level and deep water level.
-     * @param row int - the row of the field to calculate the water color
-     * @param field Field - the field reference.
-     * @return Color - the color of the tile in the field.
-     */
-    private Color getBackgroundColor(int row, Field field) {
-        int depth = field.getDepth(); // .. getting the depth.
-        double rowd = (double) row;
-        double gradientPercent = 1 - rowd/depth; // Calculating the gradient percent for the certain row.
-
-        double waterSurfaceLevel = NORMAL_WATER_SURFACE_LEVEL + simulator.getCurrentWeather(); // Get the water surface level depending on the weather.
-        int r,g,b;
-        if (row < waterSurfaceLevel){
-            int timeInt = simulator.getDayNightCycle().getCurrentTimeInt(); // Calculating the sky gradient depending on the time of day.
-            int dayPhase = timeInt/(DayNightCycle.HOUR_LENGHT*6); // Different day phases are set to different colors - See constants defined above.
-            if(dayPhase == 0) {
-                double timeIntD = (double) timeInt;
-                double timePercent = 1- (timeIntD/359);
-                r = (int) Math.round(MIDNIGHT_COLOR.getRed()*timePercent + MORNING_COLOR.getRed()*(1-timePercent));
-                g = (int) Math.round(MIDNIGHT_COLOR.getGreen()*timePercent + MORNING_COLOR.getGreen()*(1-timePercent));
-                b = (int) Math.round(MIDNIGHT_COLOR.getBlue()*timePercent + MORNING_COLOR.getBlue()*(1-timePercent));
-            } else if(dayPhase == 1){
-                double timeIntD = (double) timeInt-360;
-                double timePercent = 1- (timeIntD/359);
-                r = (int) Math.round(MORNING_COLOR.getRed()*timePercent + NOON_COLOR.getRed()*(1-timePercent));
-                g = (int) Math.round(MORNING_COLOR.getGreen()*timePercent + NOON_COLOR.getGreen()*(1-timePercent));
-                b = (int) Math.round(MORNING_COLOR.getBlue()*timePercent + NOON_COLOR.getBlue()*(1-timePercent));
-            } else if(dayPhase ==2) {
-                double timeIntD = (double) timeInt-720;
-                double timePercent = 1- (timeIntD/359);
-                r = (int) Math.round(NOON_COLOR.getRed()*timePercent + EVENING_COLOR.getRed()*(1-timePercent));
-                g = (int) Math.round(NOON_COLOR.getGreen()*timePercent + EVENING_COLOR.getGreen()*(1-timePercent));
-                b = (int) Math.round(NOON_COLOR.getBlue()*timePercent + EVENING_COLOR.getBlue()*(1-timePercent));
+            t.setText(" " + key.getName() + "\n---------------\n" + count);
+            // Using borders to facilitate their display.
+            // For instance if a certaint specie falls below 500 population the border will
+            // be orange.
+            if(count == 0) {
+                t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.BLACK));
+            } else if (count <= 99) {
+                t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.RED));
+            } else if(count <= 499) {
+                t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.ORANGE));
             } else {
-                double timeIntD = (double) timeInt-1080;
-                double timePercent = 1- (timeIntD/359);
-                r = (int) Math.round(EVENING_COLOR.getRed()*timePercent + MIDNIGHT_COLOR.getRed()*(1-timePercent));
-                g = (int) Math.round(EVENING_COLOR.getGreen()*timePercent + MIDNIGHT_COLOR.getGreen()*(1-timePercent));
-                b = (int) Math.round(EVENING_COLOR.getBlue()*timePercent + MIDNIGHT_COLOR.getBlue()*(1-timePercent));
+                t.setBorder(BorderFactory.createMatteBorder(5,5,5,5,Color.GREEN));
             }
-        }else {
-            r = (int) Math.round(SURFACE_COLOR.getRed()*gradientPercent + OCEAN_COLOR.getRed()*(1-gradientPercent));
-            g = (int) Math.round(SURFACE_COLOR.getGreen()*gradientPercent + OCEAN_COLOR.getGreen()*(1-gradientPercent));
-            b = (int) Math.round(SURFACE_COLOR.getBlue()*gradientPercent + OCEAN_COLOR.getBlue()*(1-gradientPercent));
         }
-        return new Color(r,g,b); // return the desired color.
-    }
-
-    /**
-     * Determine whether the simulation should continue to run.
-     * @return true If there is more than one species alive.
-     */
-    public boolean isViable(Field field)
-    {
-        return stats.isViable(field);
     }
 
     /**
@@ -428,16 +371,40 @@ public class SimulatorView extends JFrame
      * component displays the field.
      * This is rather advanced GUI stuff - you can ignore this 
      * for your project if you like.
+     * 
+     * The view shows the part of the field that fits in it, so only the
+     * cells in view are drawn. At first the whole field is fitted into the
+     * view; the mouse wheel zooms in and out around the cursor, dragging
+     * moves the view around and a double click fits the field again.
+     * Zoomed out further than a pixel a cell, the renderer shows blocks of
+     * cells by the species that holds most of them.
      */
     private class FieldView extends JPanel
     {
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+        // The largest size the view asks for, whatever the size of the field.
+        private final int MAX_PREFERRED_WIDTH = 1200;
+        private final int MAX_PREFERRED_HEIGHT = 720;
+        // How many cells a pixel stands for at most, zoomed out.
+        private final int MAX_CELLS_PER_PIXEL = 64;
 
         private int gridWidth, gridHeight;
         private int xScale, yScale;
         Dimension size;
-        private Graphics g;
+        // Zoomed out: how many cells a pixel stands for. Zoomed in: 1.
+        private int cellsPerPixel;
+        // The cell in the top left corner of the view.
+        private int firstRow, firstCol;
+        // Whether the whole field is fitted into the view, which it is until zoomed.
+        private boolean fitted;
+        // Where a drag started, and the top left cell then.
+        private Point dragStart;
+        private int dragRow, dragCol;
+        // Draws the field into the image shown.
+        private final FieldRenderer renderer;
         private Image fieldImage;
+        // The last snapshot drawn, to draw again when the view moves.
+        private FrameSnapshot lastFrame;
 
         /**
          * Create a new FieldView component.
@@ -447,6 +414,37 @@ public class SimulatorView extends JFrame
             gridHeight = height;
             gridWidth = width;
             size = new Dimension(0, 0);
+            cellsPerPixel = 1;
+            fitted = true;
+            renderer = new FieldRenderer(UNKNOWN_COLOR, getBackground());
+
+            addMouseWheelListener(e -> zoom(e.getWheelRotation() < 0, e.getPoint()));
+            MouseAdapter mouse = new MouseAdapter() {
+                    public void mousePressed(MouseEvent e)
+                    {
+                        dragStart = e.getPoint();
+                        dragRow = firstRow;
+                        dragCol = firstCol;
+                    }
+
+                    public void mouseDragged(MouseEvent e)
+                    {
+                        if(dragStart != null) {
+                            pan(e.getPoint());
+                        }
+                    }
+
+                    public void mouseClicked(MouseEvent e)
+                    {
+                        if(e.getClickCount() == 2) {
+                            fitted = true;
+                            size = new Dimension(0, 0);
+                            redraw();
+                        }
+                    }
+                };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
         }
 
         /**
@@ -454,39 +452,155 @@ public class SimulatorView extends JFrame
          */
         public Dimension getPreferredSize()
         {
-            return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
-                gridHeight * GRID_VIEW_SCALING_FACTOR);
+            return new Dimension(Math.min(gridWidth * GRID_VIEW_SCALING_FACTOR, MAX_PREFERRED_WIDTH),
+                Math.min(gridHeight * GRID_VIEW_SCALING_FACTOR, MAX_PREFERRED_HEIGHT));
         }
 
         /**
          * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * may be resized, compute the scaling factor again while the
+         * whole field is fitted in, and tell the renderer what is in view.
          */
         public void preparePaint()
         {
             if(! size.equals(getSize())) {  // if the size has changed...
                 size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
+                if(fitted) {
+                    fit();
+                }
+                clampOrigin();
+            }
+            renderer.setView(firstRow, firstCol, xScale, yScale, cellsPerPixel,
+                             size.width, size.height);
+        }
 
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
+        /**
+         * Zoom so that the whole field fits into the view.
+         */
+        private void fit()
+        {
+            firstRow = 0;
+            firstCol = 0;
+            xScale = Math.max(size.width / gridWidth, 1);
+            yScale = Math.max(size.height / gridHeight, 1);
+            cellsPerPixel = 1;
+            if(size.width > 0 && size.height > 0) {
+                while(cellsPerPixel < MAX_CELLS_PER_PIXEL
+                      && (gridWidth > size.width * cellsPerPixel || gridHeight > size.height * cellsPerPixel)) {
+                    cellsPerPixel *= 2;
                 }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+            }
+        }
+
+        /**
+         * Zoom in or out one level, keeping the cell under the given point where it is.
+         * @param in true to zoom in.
+         * @param point The point in the view.
+         */
+        private void zoom(boolean in, Point point)
+        {
+            int row = firstRow + rowsIn(point.y);
+            int col = firstCol + colsIn(point.x);
+            if(in) {
+                if(cellsPerPixel > 1) {
+                    cellsPerPixel /= 2;
+                }
+                else {
+                    // Zoomed in, the cells become square.
+                    xScale = yScale = Math.min(xScale, yScale) + 1;
+                }
+            }
+            else {
+                if(xScale > 1 || yScale > 1) {
+                    xScale = yScale = Math.max(Math.min(xScale, yScale) - 1, 1);
+                }
+                else if(cellsPerPixel < MAX_CELLS_PER_PIXEL) {
+                    cellsPerPixel *= 2;
                 }
             }
+            fitted = false;
+            firstRow = row - rowsIn(point.y);
+            firstCol = col - colsIn(point.x);
+            clampOrigin();
+            redraw();
+        }
+
+        /**
+         * Move the view with a drag of the mouse to the given point.
+         * @param point The point in the view.
+         */
+        private void pan(Point point)
+        {
+            int row = dragRow - rowsIn(point.y - dragStart.y);
+            int col = dragCol - colsIn(point.x - dragStart.x);
+            if(row != firstRow || col != firstCol) {
+                firstRow = row;
+                firstCol = col;
+                clampOrigin();
+                redraw();
+            }
+        }
+
+        /**
+         * Return how many rows of cells the given number of pixels takes.
+         */
+        private int rowsIn(int pixels)
+        {
+            return cellsPerPixel > 1 ? pixels * cellsPerPixel : pixels / yScale;
         }
 
         /**
-         * Paint on grid location on this field in a given color.
+         * Return how many columns of cells the given number of pixels takes.
          */
-        public void drawMark(int x, int y, Color color)
+        private int colsIn(int pixels)
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            return cellsPerPixel > 1 ? pixels * cellsPerPixel : pixels / xScale;
+        }
+
+        /**
+         * Keep the view from moving past the bottom or right of the field,
+         * or past its top or left.
+         */
+        private void clampOrigin()
+        {
+            firstRow = Math.max(Math.min(firstRow, gridHeight - rowsIn(size.height)), 0);
+            firstCol = Math.max(Math.min(firstCol, gridWidth - colsIn(size.width)), 0);
+        }
+
+        /**
+         * Draw the last snapshot again in full, after the view changed.
+         */
+        private void redraw()
+        {
+            if(lastFrame == null) {
+                return;
+            }
+            preparePaint();
+            renderer.render(lastFrame);
+            fieldImage = renderer.getImage();
+            repaint();
+        }
+
+        /**
+         * Draw what changed in the field into the image shown, and
+         * redisplay only the part of it that was drawn.
+         * @param frame The snapshot of the field.
+         */
+        public void render(FrameSnapshot frame)
+        {
+            if(frame.getDepth() != gridHeight || frame.getWidth() != gridWidth) {
+                gridHeight = frame.getDepth();
+                gridWidth = frame.getWidth();
+                fitted = true;
+                size = new Dimension(0, 0);
+                preparePaint();
+            }
+            lastFrame = frame;
+            Rectangle changed = renderer.update(frame);
+            fieldImage = renderer.getImage();
+            if(changed != null) {
+                repaint(changed);
+            }
         }
 
         /**
@@ -495,15 +609,9 @@ public class SimulatorView extends JFrame
          */
         public void paintComponent(Graphics g)
         {
+            super.paintComponent(g);
             if(fieldImage != null) {
-                Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
-                }
-                else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
-                }
+                g.drawImage(fieldImage, 0, 0, null);
             }
         }
     }
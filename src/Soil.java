@@ -1,29 +1,26 @@
 import java.awt.Color;
-import java.util.Random;
 import java.util.List;
 /**
  * Soil class has a basic functionality.
  * It doesn't allow Algae to grow if it is night.
+ * 
+ * The soil is no actor: a cell of soil is only its species id in the field
+ * (see Field.placeTerrain()). This class gives the colour of the soil and
+ * spawns the algae of all of it at once.
  *
  * @author (your name)
  * @version (a version number or a date)
  */
-public class Soil extends Terrain
+public class Soil
 {
     // Each concrete class has a color.
     private static final Color COLOR = new Color(200,113,0);
     // The chance of spawning/growing.
     private static final double SPAWN_ALGAE_CHANCE = 0.02;
-
-    private static final Random rand = Randomizer.getRandom();
     /**
-     * Constructor for Soil objects
-     * @param field - the current field.
-     * @param location - the location of the soil.
-     * @param sim - the simulator that operates this soil actor.
+     * There are no Soil objects.
      */
-    public Soil(Field field, Location location, Simulator sim) {
-        super(field,location, sim);
+    private Soil() {
     }
 
     /**
@@ -36,20 +33,34 @@ public class Soil extends Terrain
     }
 
     /**
-     * Abstract method implemented:
-     * The soil produces the first Algae entity if there is nothing growing 
-     * from it.
-     * It only produces it if it is daylight.
-     * @param newActors - the new algae to be displayed.
+     * The soil of the terrain is no actor (see Field.placeTerrain()), so its algae are
+     * spawned here, for the whole field in one pass. Only the highest soil of a column can
+     * have a free cell above it - the terrain below it never moves - so during the day each
+     * column whose highest soil has room above it takes one chance of an algae growing there.
+     * The chances are taken through the SpawnScheduler, so only the algae that do grow draw
+     * random numbers. Nothing happens at night.
+     * 
+     * @param field Field - the field.
+     * @param sim Simulator - the simulator reference.
+     * @param newActors List<Actor> - where to add the new algae, when the plants are actors.
      */
-    public void act(List<Actor> newActors) {
-        Simulator sim = super.getSim();
-        DayNightCycle cycle = sim.getDayNightCycle(); // Get the day-night-cycle.
-        if(cycle.getPartOfDay() == DayNightCycle.DAY) { // Calculate the growth depending on the time of the day.
-            List<Location> freeLocations = super.getField().getFreeAdjacentLocations(super.getLocation());
-            for(Location l : freeLocations) {
-                if (l.getRow() + 1 == super.getLocation().getRow() && rand.nextDouble() <= SPAWN_ALGAE_CHANCE && l.getCol() == super.getLocation().getCol()) {
-                    newActors.add(new Algae(super.getField(),l, super.getSim())); 
+    public static void spawnAlgaeOnTerrain(Field field, Simulator sim, List<Actor> newActors) {
+        if (sim.getDayNightCycle().getPartOfDay() != DayNightCycle.DAY) {
+            return;
+        }
+        double chance = sim.getParameters().get(Species.SOIL, Parameters.GROWTH_PROBABILITY, SPAWN_ALGAE_CHANCE);
+        SpawnScheduler spawns = SpawnScheduler.forThread();
+        for (int col = 0; col < field.getWidth(); col++) {
+            int ground = field.getGroundRow(col);
+            if (ground == 0 || ground == field.getDepth() || !field.isTerrain(field.indexOf(ground, col))) {
+                continue;
+            }
+            int above = field.indexOf(ground - 1, col);
+            if (field.isFree(above) && spawns.trial(Species.SOIL, chance)) {
+                if (sim.getPlantLayer() != null) {
+                    field.placePlant(above, Species.ALGAE);
+                }else {
+                    newActors.add(new Algae(field, field.locationOf(above), sim));
                 }
             }
         }
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Decides which of many unlikely spawns happen, drawing a random number
+ * for each spawn that does instead of for each chance of one.
+ *
+ * Plants and soil spawn into a free cell with a small chance each time
+ * they look at one - a few in ten thousand for plankton - so almost every
+ * draw against that chance fails. The scheduler instead draws how many
+ * chances in a row will fail before the next one succeeds, which follows
+ * a geometric distribution, and counts the chances down. Each chance
+ * still succeeds with the same probability, independently of the others,
+ * so the spawns are as frequent and as random as before; but a chance
+ * that fails costs a subtraction, and a spawner with several cells to
+ * try can find out at once whether any of them spawns (see nextSuccess()).
+ *
+ * Every kind of spawn - by species id of the spawner - has a count of its
+ * own. Each thread has its own scheduler (see forThread()), which starts
+ * its counts again whenever another random stream is bound to the thread
+ * (see Randomizer.bind()), so the spawns only depend on the streams, as
+ * every other draw does.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class SpawnScheduler
+{
+    // A count that has not been drawn yet.
+    private static final long NOT_DRAWN = -1;
+    // The scheduler of each thread.
+    private static final ThreadLocal<SpawnScheduler> schedulers = ThreadLocal.withInitial(SpawnScheduler::new);
+
+    private static final Random rand = Randomizer.getRandom();
+
+    // How many chances of each kind will fail before the next succeeds.
+    private final long[] gaps;
+    // The probability each count was drawn for.
+    private final double[] chances;
+    // The stream the counts were drawn from.
+    private SplittableRandom stream;
+
+    /**
+     * Create a scheduler with no counts drawn.
+     */
+    public SpawnScheduler()
+    {
+        gaps = new long[Species.COUNT];
+        chances = new double[Species.COUNT];
+        Arrays.fill(gaps, NOT_DRAWN);
+    }
+
+    /**
+     * Return the scheduler of the calling thread, with its counts started
+     * again if the random stream bound to the thread has changed.
+     * @return The scheduler.
+     */
+    public static SpawnScheduler forThread()
+    {
+        SpawnScheduler scheduler = schedulers.get();
+        SplittableRandom current = Randomizer.getStream();
+        if(current != scheduler.stream) {
+            scheduler.stream = current;
+            Arrays.fill(scheduler.gaps, NOT_DRAWN);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Take one chance of a spawn.
+     * @param kind The species id of the spawner.
+     * @param chance The probability of the spawn.
+     * @return true if it happens.
+     */
+    public boolean trial(byte kind, double chance)
+    {
+        return nextSuccess(kind, chance, 1) == 0;
+    }
+
+    /**
+     * Take a number of chances of a spawn, one after another, up to the
+     * first that succeeds.
+     * @param kind The species id of the spawner.
+     * @param chance The probability of each spawn.
+     * @param trials How many chances there are.
+     * @return Which of them succeeds first, from 0; or -1 if none does,
+     *         in which case all of them were taken.
+     */
+    public int nextSuccess(byte kind, double chance, int trials)
+    {
+        if(trials <= 0) {
+            return -1;
+        }
+        if(gaps[kind] == NOT_DRAWN || chances[kind] != chance) {
+            gaps[kind] = drawGap(chance);
+            chances[kind] = chance;
+        }
+        long gap = gaps[kind];
+        if(gap >= trials) {
+            gaps[kind] = gap - trials;
+            return -1;
+        }
+        gaps[kind] = NOT_DRAWN;
+        return (int) gap;
+    }
+
+    /**
+     * Draw how many chances of the given probability fail before one succeeds.
+     */
+    private static long drawGap(double chance)
+    {
+        if(chance >= 1) {
+            return 0;
+        }
+        if(chance <= 0) {
+            return Long.MAX_VALUE;
+        }
+        // 1 - nextDouble() is never 0, so the logarithm is finite.
+        double u = 1 - rand.nextDouble();
+        return (long) Math.floor(Math.log(u) / Math.log1p(-chance));
+    }
+}
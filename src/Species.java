@@ -0,0 +1,103 @@
+/**
+ * Numeric identifiers for every kind of occupant that can be stored in a
+ * Field. The field keeps one of these ids per cell, next to the occupant
+ * itself, so scans over the grid can work on a plain byte array instead of
+ * following references and calling getClass() on every object.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class Species
+{
+    // An empty cell.
+    public static final byte EMPTY = 0;
+    // The animals.
+    public static final byte SEAGULL = 1;
+    public static final byte SHARK = 2;
+    public static final byte KILLER_WHALE = 3;
+    public static final byte COD = 4;
+    public static final byte MACKEREL = 5;
+    public static final byte ANCHOVY = 6;
+    // The plants.
+    public static final byte ALGAE = 7;
+    public static final byte PLANKTON = 8;
+    // The terrain.
+    public static final byte ROCK = 9;
+    public static final byte SOIL = 10;
+    // Any other object placed in the field.
+    public static final byte UNKNOWN = 11;
+    // The padding cells surrounding the field.
+    public static final byte BORDER = 12;
+    // How many ids there are - handy for sizing tables indexed by id.
+    public static final int COUNT = 13;
+
+    // The class that belongs to each id (null for the ids without one).
+    private static final Class<?>[] CLASSES = {
+        null, Seagull.class, Shark.class, KillerWhale.class, Cod.class,
+        Mackerel.class, Anchovy.class, Algae.class, Plankton.class,
+        Rock.class, Soil.class, null, null
+    };
+
+    /**
+     * Return the id used for objects of the given class.
+     * @param occupantClass The class of the occupant.
+     * @return The species id, or UNKNOWN for classes without their own id.
+     */
+    public static byte idOf(Class<?> occupantClass)
+    {
+        for(byte id = SEAGULL; id <= SOIL; id++) {
+            if(CLASSES[id] == occupantClass) {
+                return id;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Return the id to be stored in the field for the given occupant.
+     * @param occupant The occupant, possibly null.
+     * @return The species id, EMPTY for null.
+     */
+    public static byte idOf(Object occupant)
+    {
+        if(occupant == null) {
+            return EMPTY;
+        }
+        else if(occupant instanceof Actor) {
+            return ((Actor) occupant).getSpeciesId();
+        }
+        else {
+            return idOf(occupant.getClass());
+        }
+    }
+
+    /**
+     * Check whether the given id belongs to one of the prey species.
+     * @param id The species id.
+     * @return true for cod, mackerel and anchovy.
+     */
+    public static boolean isPrey(byte id)
+    {
+        return id >= COD && id <= ANCHOVY;
+    }
+
+    /**
+     * Check whether the given id belongs to one of the predator species.
+     * @param id The species id.
+     * @return true for seagulls, sharks and killer whales.
+     */
+    public static boolean isPredator(byte id)
+    {
+        return id >= SEAGULL && id <= KILLER_WHALE;
+    }
+
+    /**
+     * Return the class belonging to the given id.
+     * @param id The species id.
+     * @return The class, or null if the id does not belong to a class.
+     */
+    public static Class<?> classOf(byte id)
+    {
+        return CLASSES[id];
+    }
+}
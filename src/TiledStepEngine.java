@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs one step of the simulation on several threads.
+ *
+ * The field is cut into tiles: strips of whole columns. An actor reads and
+ * changes no cell more than its hunting range and one more column away
+ * from its own, so the cells the actors of a tile touch reach at most that
+ * far into the tiles next to it. The tiles are run in two phases, like the
+ * squares of a checkerboard - first the even tiles, all at once, then the
+ * odd ones - and the actors of two tiles run at the same time must never
+ * touch the same cell, nor the same long of the field's bitboards, which
+ * holds 64 columns and is updated by reading and writing it back.
+ *
+ * So a tile is at least twice that reach wide, rounded up to a multiple of
+ * 64 columns, and one long wider still. Without that long, with tiles of 64
+ * columns, an actor in column 63 of tile 0 could change column 64 while
+ * one in column 128 of tile 2 changes column 127, both in the second long
+ * of the row. The tiles are full columns because algae look down their
+ * whole column.
+ *
+ * That makes the tiles at least 128 columns wide, and more for hunting
+ * ranges over 31. A field needs at least four tiles - over 384 columns at the
+ * least - for each phase to have two tiles to run at once; with fewer, tiling
+ * would only add the cost of the phases and the streams to a step that
+ * runs on one thread anyway. See isWorthTiling().
+ *
+ * Every tile draws its random numbers from its own stream, made from the
+ * seed of the run, the step and the tile, and collects its own newborns,
+ * which are added to the actors in tile order. So a run gives the same
+ * results whatever the number of threads.
+ *
+ * @author Luca-Dorin Anton and Horia Pavel
+ * @version v1.1
+ */
+public class TiledStepEngine
+{
+    // The threads the tiles run on.
+    private final ForkJoinPool pool;
+    // The actors to act in each tile, in the order of the arena.
+    private List<List<Actor>> tileActors;
+    // The newborns of each tile.
+    private List<List<Actor>> tileNewborns;
+    // How many columns a tile has.
+    private int tileWidth;
+
+    /**
+     * Create an engine.
+     * @param pool The threads to run the tiles on.
+     */
+    public TiledStepEngine(ForkJoinPool pool)
+    {
+        this.pool = pool;
+        tileActors = new ArrayList<>();
+        tileNewborns = new ArrayList<>();
+    }
+
+    /**
+     * Return how many columns the tiles have for a hunting range.
+     * @param range The largest hunting range of any actor.
+     * @return The width of a tile.
+     */
+    public static int tileWidth(int range)
+    {
+        return (2 * (range + 1) + 63) / 64 * 64 + 64;
+    }
+
+    /**
+     * Check whether the tiles of a field run on more than one thread:
+     * whether both phases have at least two tiles.
+     * @param width The width of the field.
+     * @param range The largest hunting range of any actor.
+     * @return true if the field has at least four tiles.
+     */
+    public static boolean isWorthTiling(int width, int range)
+    {
+        return width > 3 * tileWidth(range);
+    }
+
+    /**
+     * Let every live actor act once. Dead actors are unlinked from the
+     * arena and the newborns are added after the last actor.
+     * @param actors All the actors, in their order.
+     * @param field The field they are in.
+     * @param seed The seed of the run.
+     * @param step The number of the step.
+     * @param range The largest hunting range of any actor.
+     */
+    public void step(ActorArena actors, Field field, long seed, int step, int range)
+    {
+        tileWidth = tileWidth(range);
+        int tileCount = (field.getWidth() + tileWidth - 1) / tileWidth;
+        while(tileActors.size() < tileCount) {
+            tileActors.add(new ArrayList<>());
+            tileNewborns.add(new ArrayList<>());
+        }
+        for(int tile = 0; tile < tileCount; tile++) {
+            tileActors.get(tile).clear();
+            tileNewborns.get(tile).clear();
+        }
+
+        for(int slot = 0; slot < actors.size(); slot++) {
+            if(!actors.isLinked(slot)) {
+                continue;
+            }
+            Actor actor = actors.get(slot);
+            if(!ActorArena.isAlive(actor)) {
+                actors.unlink(slot);
+            }
+            else {
+                tileActors.get(actor.getLocation().getCol() / tileWidth).add(actor);
+            }
+        }
+
+        runPhase(0, tileCount, seed, step);
+        runPhase(1, tileCount, seed, step);
+
+        for(int tile = 0; tile < tileCount; tile++) {
+            for(Actor newborn : tileNewborns.get(tile)) {
+                actors.add(newborn);
+            }
+        }
+    }
+
+    /**
+     * Run every other tile, starting from the given one, at the same time.
+     */
+    private void runPhase(int first, int tileCount, long seed, int step)
+    {
+        List<TileStep> tiles = new ArrayList<>();
+        for(int tile = first; tile < tileCount; tile += 2) {
+            tiles.add(new TileStep(tile, seed, step));
+        }
+        pool.invoke(new RecursiveAction() {
+            protected void compute()
+            {
+                invokeAll(tiles);
+            }
+        });
+    }
+
+    /**
+     * The actors of one tile acting, in order.
+     */
+    private class TileStep extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final int tile;
+        private final long seed;
+        private final int step;
+
+        TileStep(int tile, long seed, int step)
+        {
+            this.tile = tile;
+            this.seed = seed;
+            this.step = step;
+        }
+
+        protected void compute()
+        {
+            List<Actor> newborns = tileNewborns.get(tile);
+            SplittableRandom previous = Randomizer.bind(Randomizer.newStream(seed, step, tile));
+            try {
+                for(Actor actor : tileActors.get(tile)) {
+                    // It may have been eaten by an actor of a tile next to it.
+                    if(ActorArena.isAlive(actor)) {
+                        actor.act(newborns);
+                    }
+                }
+            }
+            finally {
+                Randomizer.bind(previous);
+            }
+        }
+    }
+}